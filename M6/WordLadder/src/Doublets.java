@@ -1,8 +1,7 @@
-import java.io.BufferedReader;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.util.stream.Collectors;
 
@@ -25,6 +24,28 @@ public class Doublets implements WordLadderGame {
    private TreeSet<String> lexicon;
    private static List<String> EMPTY_LADDER = new ArrayList<>();
    
+   // every word with one letter replaced by WILDCARD, mapped to the words
+   // that match it, in ascending order; for example "c*t" -> [cat, cot, cut].
+   // Patterns only one word matches are left out.
+   private HashMap<String, List<String>> patterns;
+   private static final char WILDCARD = '*';
+   
+   // the word graph, if one was asked for or a ladder tree needed one; it
+   // replaces patterns only when the constructor builds it
+   private volatile WordGraph graph;
+   
+   // single-source ladder trees, by source word
+   private static final int TREE_ENTRIES = 64;
+   private static final long TREE_BYTES = 64L << 20;
+   private final LadderTreeCache ladderTrees =
+         new LadderTreeCache(TREE_ENTRIES, TREE_BYTES);
+   
+   // whether getMinLadder searches from both ends at once
+   private volatile boolean bidirectional;
+   
+   // words reached by getMinLadder searches over Strings
+   private final AtomicLong nodesVisited = new AtomicLong();
+   
    /**
     * Instantiates a new instance of Doublets with the lexicon populated with
     * the strings in the provided InputStream. The InputStream can be formatted
@@ -32,20 +53,32 @@ public class Doublets implements WordLadderGame {
     * stored in the lexicon.
     */
    public Doublets(InputStream in) {
+      this(in, false);
+   }
+   
+   /**
+    * Instantiates a new instance of Doublets as above, optionally also
+    * precomputing the graph of every word's neighbors. The graph is stored
+    * as int arrays, so its size is predictable, and ladders are then found
+    * by searching it with almost no allocation.
+    *
+    * @param in the word list
+    * @param wordGraph true to precompute the word graph
+    */
+   public Doublets(InputStream in, boolean wordGraph) {
       try {
          //////////////////////////////////////
          // INSTANTIATE lexicon OBJECT HERE  //
          //////////////////////////////////////
          lexicon = new TreeSet<String >();
          
-         Scanner s =
-               new Scanner(new BufferedReader(new InputStreamReader(in)));
-         while (s.hasNext()) {
-            String str = s.next();
-            lexicon.add(str.toLowerCase());
-            s.nextLine();
-         }
+         WordListReader.readFirstWords(in, lexicon);
          in.close();
+         indexPatterns();
+         if (wordGraph) {
+            graph = new WordGraph(lexicon, this::patternNeighbors);
+            patterns = null;
+         }
       }
       catch (java.io.IOException e) {
          System.err.println("Error reading from InputStream.");
@@ -53,6 +86,49 @@ public class Doublets implements WordLadderGame {
       }
    }
    
+   /**
+    * Returns the word graph, building it if the constructor did not.
+    */
+   private synchronized WordGraph wordGraph() {
+      if (graph == null) {
+         graph = new WordGraph(lexicon, this::patternNeighbors);
+      }
+      return graph;
+   }
+   
+   /**
+    * Fills patterns from lexicon. Words are added in ascending order, so
+    * each bucket comes out sorted.
+    */
+   private void indexPatterns() {
+      patterns = new HashMap<String, List<String>>();
+      for (String word : lexicon) {
+         char[] chars = word.toCharArray();
+         for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            chars[i] = WILDCARD;
+            String pattern = new String(chars);
+            chars[i] = c;
+            List<String> bucket = patterns.get(pattern);
+            if (bucket == null) {
+               bucket = new ArrayList<String>(2);
+               patterns.put(pattern, bucket);
+            }
+            bucket.add(word);
+         }
+      }
+      Iterator<List<String>> buckets = patterns.values().iterator();
+      while (buckets.hasNext()) {
+         List<String> bucket = buckets.next();
+         if (bucket.size() == 1) {
+            buckets.remove();
+         }
+         else {
+            ((ArrayList<String>) bucket).trimToSize();
+         }
+      }
+   }
+   
    @Override
    public int getWordCount() {
       return lexicon.size();
@@ -79,19 +155,39 @@ public class Doublets implements WordLadderGame {
    
    @Override
    public List<String> getNeighbors(String word) {
-      List<String> neighbors = new ArrayList<String>();
       if (!isWord(word)) {
-         return neighbors;
+         return new ArrayList<String>();
       }
-      Iterator<String> iterator = lexicon.iterator();
-      String tempWord;
-      
-      while (iterator.hasNext()) {
-         tempWord = iterator.next();
-         if (getHammingDistance(word, tempWord) == 1) {
-            neighbors.add(tempWord);
+      if (graph != null) {
+         return graph.neighbors(word.toLowerCase());
+      }
+      return patternNeighbors(word.toLowerCase());
+   }
+   
+   /**
+    * Returns the neighbors of a lower-case word from patterns, in ascending
+    * order.
+    */
+   private List<String> patternNeighbors(String word) {
+      List<String> neighbors = new ArrayList<String>();
+      // a neighbor differs in exactly one place, so it is in exactly one
+      // of the word's buckets
+      char[] chars = word.toCharArray();
+      for (int i = 0; i < chars.length; i++) {
+         char c = chars[i];
+         chars[i] = WILDCARD;
+         List<String> bucket = patterns.get(new String(chars));
+         chars[i] = c;
+         if (bucket == null) {
+            continue;
+         }
+         for (String tempWord : bucket) {
+            if (tempWord.charAt(i) != c) {
+               neighbors.add(tempWord);
+            }
          }
       }
+      Collections.sort(neighbors);
       return neighbors;
    }
    
@@ -117,6 +213,67 @@ public class Doublets implements WordLadderGame {
       return true;
    }
    
+   /**
+    * Chooses how getMinLadder searches. A one-sided search from start
+    * reaches every word closer to start than end is, which on long ladders
+    * between common words is most words of that length. A bidirectional
+    * search meets in the middle and so reaches far fewer. Both return
+    * minimum-length ladders, though not always the same one. The default
+    * is one-sided.
+    *
+    * @param bidirectional true to search from both ends at once
+    */
+   public void setBidirectional(boolean bidirectional) {
+      this.bidirectional = bidirectional;
+   }
+   
+   /**
+    * Returns the number of words getMinLadder searches have reached so
+    * far, counting each search's start and end words.
+    *
+    * @return the total words reached
+    */
+   public long getNodesVisited() {
+      long visited = nodesVisited.get();
+      return graph == null ? visited : visited + graph.visits();
+   }
+   
+   /**
+    * Returns every minimum-length ladder from a word at once, as the tree
+    * of a breadth-first search from it. Trees are kept in a bounded cache,
+    * and getMinLadder answers from a cached tree rooted at its start word
+    * by walking the tree, so asking for the tree first makes later ladders
+    * from the same word take time proportional to their length. The word
+    * graph is built on first use if the constructor did not build it.
+    *
+    * @param source the word the ladders start from
+    * @return the tree, or null if source is not a word
+    */
+   public LadderTree getLadderTree(String source) {
+      source = source.toLowerCase();
+      if (!isWord(source)) {
+         return null;
+      }
+      LadderTree tree = ladderTrees.get(source);
+      if (tree == null) {
+         tree = wordGraph().tree(source);
+         ladderTrees.put(tree);
+      }
+      return tree;
+   }
+   
+   /**
+    * Returns the cache of ladder trees, for its hit, miss and eviction
+    * counts. Every ladder getMinLadder answers from a cached tree counts
+    * as a hit, but ladders searched for without a tree are not misses;
+    * only getLadderTree lookups that have to build a tree are.
+    *
+    * @return the ladder tree cache
+    */
+   public LadderTreeCache getLadderTreeCache() {
+      return ladderTrees;
+   }
+   
    @Override
    public List<String> getMinLadder(String start, String end) {
       start = start.toLowerCase();
@@ -131,6 +288,24 @@ public class Doublets implements WordLadderGame {
          return EMPTY_LADDER;
       }
       if (isWord(start) && isWord(end)) {
+         LadderTree tree = ladderTrees.peek(start);
+         if (tree != null) {
+            List<String> ladder = tree.ladderTo(end);
+            return ladder.isEmpty() ? EMPTY_LADDER : ladder;
+         }
+         if (graph != null || bidirectional) {
+            List<String> ladder;
+            if (graph == null) {
+               ladder = bidirectionalBfs(start, end);
+            }
+            else if (bidirectional) {
+               ladder = graph.bidirectionalLadder(start, end);
+            }
+            else {
+               ladder = graph.ladder(start, end);
+            }
+            return ladder.isEmpty() ? EMPTY_LADDER : ladder;
+         }
          backwards = bfs(start, end);
       }
       if (backwards.isEmpty()) {
@@ -165,6 +340,7 @@ public class Doublets implements WordLadderGame {
             }
          }
       }
+      nodesVisited.addAndGet(visited.size());
       if (endNode.predecessor == null) {
          return backwards;
       }
@@ -176,6 +352,77 @@ public class Doublets implements WordLadderGame {
       return backwards;
    }
    
+   /**
+    * Searches from start and end at once, expanding one whole level of the
+    * smaller frontier each round, and joins the two searches' parent
+    * chains at the first word both have reached. That word is on a
+    * minimum-length ladder: if the sides have searched to depths a and b
+    * without meeting, every ladder is longer than a + b, and a meeting
+    * found while expanding one side to depth a + 1 joins a ladder of
+    * length at most a + b + 1.
+    */
+   private List<String> bidirectionalBfs(String start, String end) {
+      // each word reached, mapped to the word it was reached from
+      HashMap<String, String> forward = new HashMap<String, String>();
+      HashMap<String, String> backward = new HashMap<String, String>();
+      forward.put(start, null);
+      backward.put(end, null);
+      List<String> forwardFrontier = new ArrayList<String>();
+      List<String> backwardFrontier = new ArrayList<String>();
+      forwardFrontier.add(start);
+      backwardFrontier.add(end);
+      String meet = null;
+      while (meet == null && !forwardFrontier.isEmpty()
+            && !backwardFrontier.isEmpty()) {
+         List<String> next = new ArrayList<String>();
+         if (forwardFrontier.size() <= backwardFrontier.size()) {
+            meet = expandLevel(forwardFrontier, forward, backward, next);
+            forwardFrontier = next;
+         }
+         else {
+            meet = expandLevel(backwardFrontier, backward, forward, next);
+            backwardFrontier = next;
+         }
+      }
+      nodesVisited.addAndGet(forward.size() + backward.size());
+      List<String> ladder = new ArrayList<String>();
+      if (meet == null) {
+         return ladder;
+      }
+      for (String word = meet; word != null; word = forward.get(word)) {
+         ladder.add(word);
+      }
+      Collections.reverse(ladder);
+      for (String word = backward.get(meet); word != null;
+            word = backward.get(word)) {
+         ladder.add(word);
+      }
+      return ladder;
+   }
+   
+   /**
+    * Expands every word of frontier into next, until a word is reached that
+    * the other side has already reached.
+    *
+    * @return that word, or null if there is none
+    */
+   private String expandLevel(List<String> frontier,
+                              Map<String, String> reached,
+                              Map<String, String> other, List<String> next) {
+      for (String word : frontier) {
+         for (String neighbor : getNeighbors(word)) {
+            if (!reached.containsKey(neighbor)) {
+               reached.put(neighbor, word);
+               if (other.containsKey(neighbor)) {
+                  return neighbor;
+               }
+               next.add(neighbor);
+            }
+         }
+      }
+      return null;
+   }
+   
    private class Node {
       String word;
       Node predecessor;
@@ -0,0 +1,105 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds every minimum-length ladder from one source word. For each word of
+ * the source's length, the tree stores its distance from the source and
+ * the word it was first reached from in a breadth-first search.
+ *
+ * Both are int arrays indexed by word id within that length, so a tree
+ * takes eight bytes per word of the source's length. A ladder to any word
+ * is a walk back along predecessors, taking time proportional to its
+ * length. Trees never change, so they can be shared between threads.
+ */
+public final class LadderTree {
+
+   private static final int ARRAY_HEADER_BYTES = 16;
+   private static final int OBJECT_BYTES = 64;
+
+   private final WordGraph graph;
+   private final int source;
+   private final int from;
+   private final int[] distance;
+   private final int[] predecessor;
+   private final int reachable;
+
+   /**
+    * Creates a tree over the words with ids from through
+    * from + distance.length - 1. Predecessors are given as offsets from
+    * from, and both arrays hold -1 where there is no value.
+    */
+   LadderTree(WordGraph graph, int source, int from, int[] distance,
+              int[] predecessor, int reachable) {
+      this.graph = graph;
+      this.source = source;
+      this.from = from;
+      this.distance = distance;
+      this.predecessor = predecessor;
+      this.reachable = reachable;
+   }
+
+   /**
+    * Returns the word the tree is rooted at.
+    *
+    * @return the source word
+    */
+   public String source() {
+      return graph.word(source);
+   }
+
+   /**
+    * Returns the number of words a ladder from the source can reach,
+    * counting the source itself.
+    *
+    * @return the number of reachable words
+    */
+   public int reachableCount() {
+      return reachable;
+   }
+
+   /**
+    * Returns the number of steps on a minimum-length ladder from the
+    * source to a word.
+    *
+    * @param word the word to reach
+    * @return the number of steps, or -1 if no ladder reaches word
+    */
+   public int distance(String word) {
+      int v = index(word);
+      return v < 0 ? -1 : distance[v];
+   }
+
+   /**
+    * Returns a minimum-length ladder from the source to a word. It is the
+    * ladder a one-sided search from the source over the word graph finds.
+    *
+    * @param word the word to reach
+    * @return the ladder, or an empty list if no ladder reaches word
+    */
+   public List<String> ladderTo(String word) {
+      List<String> ladder = new ArrayList<String>();
+      int v = index(word);
+      if (v < 0 || distance[v] < 0) {
+         return ladder;
+      }
+      for (; v >= 0; v = predecessor[v]) {
+         ladder.add(graph.word(from + v));
+      }
+      Collections.reverse(ladder);
+      return ladder;
+   }
+
+   /**
+    * Returns roughly how much memory the tree holds.
+    */
+   long estimatedBytes() {
+      return OBJECT_BYTES + 2 * (ARRAY_HEADER_BYTES + 4L * distance.length);
+   }
+
+   // the word's index into the arrays, or -1 if it is not among them
+   private int index(String word) {
+      int id = graph.id(word.toLowerCase());
+      return id < from || id >= from + distance.length ? -1 : id - from;
+   }
+}
@@ -0,0 +1,159 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps recently built ladder trees so that ladders from the same source
+ * word are walked rather than searched for again.
+ *
+ * Trees are keyed by their source word and are evicted least recently used
+ * first once either the entry limit or the estimated memory limit is
+ * exceeded. This class is thread-safe.
+ */
+public final class LadderTreeCache {
+
+   private final int maxEntries;
+   private final long maxBytes;
+   private final LinkedHashMap<String, LadderTree> entries =
+         new LinkedHashMap<String, LadderTree>(16, 0.75f, true);
+   private long bytes;
+   private long hits;
+   private long misses;
+   private long evictions;
+
+   /**
+    * Creates a cache.
+    *
+    * @param maxEntries the most trees to keep
+    * @param maxBytes the most estimated tree memory to keep
+    * @throws IllegalArgumentException if either limit is less than 1
+    */
+   public LadderTreeCache(int maxEntries, long maxBytes) {
+      if (maxEntries < 1 || maxBytes < 1) {
+         throw new IllegalArgumentException();
+      }
+      this.maxEntries = maxEntries;
+      this.maxBytes = maxBytes;
+   }
+
+   /**
+    * Returns the tree rooted at a word, if it is cached.
+    *
+    * @param source the lower-case source word
+    * @return the tree, or null if it is not cached
+    */
+   synchronized LadderTree get(String source) {
+      LadderTree tree = entries.get(source);
+      if (tree == null) {
+         misses++;
+      }
+      else {
+         hits++;
+      }
+      return tree;
+   }
+
+   /**
+    * Returns the tree rooted at a word, if it is cached, counting a hit
+    * when it is but no miss when it is not. For callers that use a tree
+    * when one happens to be cached and otherwise do without.
+    *
+    * @param source the lower-case source word
+    * @return the tree, or null if it is not cached
+    */
+   synchronized LadderTree peek(String source) {
+      LadderTree tree = entries.get(source);
+      if (tree != null) {
+         hits++;
+      }
+      return tree;
+   }
+
+   /**
+    * Remembers a tree, evicting older entries as needed. A tree larger than
+    * the memory limit on its own is not kept.
+    *
+    * @param tree the tree
+    */
+   synchronized void put(LadderTree tree) {
+      long size = tree.estimatedBytes();
+      if (size > maxBytes) {
+         return;
+      }
+      LadderTree old = entries.put(tree.source(), tree);
+      if (old != null) {
+         bytes -= old.estimatedBytes();
+      }
+      bytes += size;
+      Iterator<Map.Entry<String, LadderTree>> eldest =
+            entries.entrySet().iterator();
+      while (entries.size() > maxEntries || bytes > maxBytes) {
+         bytes -= eldest.next().getValue().estimatedBytes();
+         eldest.remove();
+         evictions++;
+      }
+   }
+
+   /**
+    * Returns the fraction of counted lookups that found a tree.
+    *
+    * @return hits / (hits + misses), or 0 before any lookup
+    */
+   public synchronized double hitRatio() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+   }
+
+   /**
+    * Returns the number of lookups that found a tree.
+    *
+    * @return number of hits
+    */
+   public synchronized long hits() {
+      return hits;
+   }
+
+   /**
+    * Returns the number of lookups that found nothing.
+    *
+    * @return number of misses
+    */
+   public synchronized long misses() {
+      return misses;
+   }
+
+   /**
+    * Returns the number of trees dropped to stay within the limits.
+    *
+    * @return number of evictions
+    */
+   public synchronized long evictions() {
+      return evictions;
+   }
+
+   /**
+    * Returns the number of cached trees.
+    *
+    * @return number of entries
+    */
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   /**
+    * Returns the estimated memory held by cached trees.
+    *
+    * @return estimated bytes
+    */
+   public synchronized long estimatedBytes() {
+      return bytes;
+   }
+
+   /**
+    * Drops every cached tree. Statistics are kept.
+    */
+   public synchronized void clear() {
+      entries.clear();
+      bytes = 0;
+   }
+}
@@ -0,0 +1,361 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Holds the word ladder graph of a word list in compressed sparse row form.
+ *
+ * Words get dense int ids ordered by length and then alphabetically, so the
+ * words of one length, the only ones a ladder can pass through, hold one
+ * contiguous range of ids. The neighbors of word i are targets[offsets[i]]
+ * through targets[offsets[i + 1] - 1], in ascending order.
+ *
+ * Searches use an int array of parents, a bitset of visited words and an
+ * int ring buffer for the queue in each direction, all sized for the
+ * largest length class and reused between searches, so finding a ladder
+ * allocates only the list it returns. Searches share that scratch space
+ * and so are synchronized.
+ */
+final class WordGraph {
+
+   private final String[] words;
+   private final int[] offsets;
+   private final int[] targets;
+   // the words of length n have ids lengthStart[n] to lengthStart[n + 1] - 1
+   private final int[] lengthStart;
+
+   // search scratch for each direction, reused between searches
+   private final Side forward;
+   private final Side backward;
+   private long visits;
+
+   /**
+    * Builds the graph of a word list.
+    *
+    * @param lexicon the words, in ascending order
+    * @param neighbors gives the neighbors of a word, in ascending order
+    */
+   WordGraph(Collection<String> lexicon,
+             Function<String, List<String>> neighbors) {
+      words = lexicon.toArray(new String[0]);
+      // stable, so words of one length stay in ascending order
+      Arrays.sort(words, Comparator.comparingInt(String::length));
+      int longest = words.length == 0 ? 0 : words[words.length - 1].length();
+      lengthStart = new int[longest + 2];
+      for (int i = 0, n = 0; n <= longest + 1; n++) {
+         while (i < words.length && words[i].length() < n) {
+            i++;
+         }
+         lengthStart[n] = i;
+      }
+      int widest = 0;
+      for (int n = 0; n <= longest; n++) {
+         widest = Math.max(widest, lengthStart[n + 1] - lengthStart[n]);
+      }
+
+      offsets = new int[words.length + 1];
+      int[] edges = new int[Math.max(16, words.length * 2)];
+      int count = 0;
+      for (int i = 0; i < words.length; i++) {
+         offsets[i] = count;
+         for (String neighbor : neighbors.apply(words[i])) {
+            if (count == edges.length) {
+               edges = Arrays.copyOf(edges, count * 2);
+            }
+            edges[count++] = id(neighbor);
+         }
+      }
+      offsets[words.length] = count;
+      targets = Arrays.copyOf(edges, count);
+
+      forward = new Side(widest);
+      backward = new Side(widest);
+   }
+
+   /**
+    * Returns the number of edges. Each pair of neighbors counts twice, once
+    * in each direction.
+    */
+   int edgeCount() {
+      return targets.length;
+   }
+
+   /**
+    * Returns the number of words searches have reached, counting each
+    * search's start and end words.
+    */
+   synchronized long visits() {
+      return visits;
+   }
+
+   /**
+    * Returns the id of a word.
+    *
+    * @return the id, or -1 if word is not in the graph
+    */
+   int id(String word) {
+      int n = word.length();
+      if (n >= lengthStart.length - 1) {
+         return -1;
+      }
+      int i = Arrays.binarySearch(words, lengthStart[n], lengthStart[n + 1],
+            word);
+      return i < 0 ? -1 : i;
+   }
+
+   /**
+    * Returns the word with an id.
+    */
+   String word(int id) {
+      return words[id];
+   }
+
+   /**
+    * Returns the neighbors of a word in ascending order.
+    */
+   List<String> neighbors(String word) {
+      List<String> neighbors = new ArrayList<String>();
+      int u = id(word);
+      if (u >= 0) {
+         for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+            neighbors.add(words[targets[e]]);
+         }
+      }
+      return neighbors;
+   }
+
+   /**
+    * Returns a minimum-length ladder by breadth-first search from start.
+    * Neighbors are visited in ascending order, so the ladder is the one a
+    * search over Strings would find.
+    *
+    * @return the ladder from start to end, or an empty list if there is
+    *     none or either word is missing
+    */
+   synchronized List<String> ladder(String start, String end) {
+      int s = id(start);
+      int t = id(end);
+      if (s < 0 || t < 0 || start.length() != end.length()) {
+         return new ArrayList<String>();
+      }
+      int from = lengthStart[start.length()];
+      forward.reset(s, from, lengthStart[start.length() + 1] - from);
+      int meet = s == t ? t : -1;
+      while (meet < 0 && !forward.isEmpty()) {
+         meet = forward.expandLevel(t);
+      }
+      visits += forward.reached;
+      return meet < 0 ? new ArrayList<String>() : path(meet, null);
+   }
+
+   /**
+    * Returns a minimum-length ladder by breadth-first search from both ends
+    * at once. Each round expands one whole level of whichever side has the
+    * smaller frontier, and the search stops at the first word both sides
+    * have reached.
+    *
+    * That word is on a minimum-length ladder. If the two sides have
+    * searched to depths a and b without meeting, every ladder is longer
+    * than a + b; a meeting found while expanding one side to depth a + 1
+    * joins ladders of length at most a + 1 + b, so exactly a + b + 1.
+    *
+    * @return the ladder from start to end, or an empty list if there is
+    *     none or either word is missing
+    */
+   synchronized List<String> bidirectionalLadder(String start, String end) {
+      int s = id(start);
+      int t = id(end);
+      if (s < 0 || t < 0 || start.length() != end.length()) {
+         return new ArrayList<String>();
+      }
+      int from = lengthStart[start.length()];
+      int size = lengthStart[start.length() + 1] - from;
+      forward.reset(s, from, size);
+      backward.reset(t, from, size);
+      int meet = s == t ? t : -1;
+      while (meet < 0 && !forward.isEmpty() && !backward.isEmpty()) {
+         if (forward.frontier() <= backward.frontier()) {
+            meet = forward.expandLevel(backward);
+         }
+         else {
+            meet = backward.expandLevel(forward);
+         }
+      }
+      visits += forward.reached + backward.reached;
+      return meet < 0 ? new ArrayList<String>() : path(meet, backward);
+   }
+
+   /**
+    * Searches from a word until every word a ladder can reach from it has
+    * been reached, in the same order ladder() would.
+    *
+    * @return the tree of the search, or null if source is not in the graph
+    */
+   LadderTree tree(String source) {
+      int s = id(source);
+      if (s < 0) {
+         return null;
+      }
+      int from = lengthStart[source.length()];
+      int size = lengthStart[source.length() + 1] - from;
+      // allocated per tree, as the tree keeps distance and predecessor
+      int[] distance = new int[size];
+      int[] predecessor = new int[size];
+      int[] queue = new int[size];
+      Arrays.fill(distance, -1);
+      Arrays.fill(predecessor, -1);
+      int head = 0;
+      int tail = 0;
+      distance[s - from] = 0;
+      queue[tail++] = s - from;
+      while (head != tail) {
+         int u = queue[head++];
+         for (int e = offsets[from + u]; e < offsets[from + u + 1]; e++) {
+            int v = targets[e] - from;
+            if (distance[v] < 0) {
+               distance[v] = distance[u] + 1;
+               predecessor[v] = u;
+               queue[tail++] = v;
+            }
+         }
+      }
+      synchronized (this) {
+         visits += tail;
+      }
+      return new LadderTree(this, s, from, distance, predecessor, tail);
+   }
+
+   /**
+    * Joins the forward parent chain ending at meet with the backward chain
+    * starting there, if there is one.
+    */
+   private List<String> path(int meet, Side back) {
+      List<String> ladder = new ArrayList<String>();
+      for (int v = meet; v >= 0; v = forward.parent(v)) {
+         ladder.add(words[v]);
+      }
+      Collections.reverse(ladder);
+      if (back != null) {
+         for (int v = back.parent(meet); v >= 0; v = back.parent(v)) {
+            ladder.add(words[v]);
+         }
+      }
+      return ladder;
+   }
+
+   /**
+    * Holds the state of a search in one direction over the words of one
+    * length: a bitset of the words reached, the word each was reached
+    * from, and a ring buffer queue of words not yet expanded. Each word is
+    * queued at most once, so the ring never fills.
+    */
+   private final class Side {
+      private final int[] parent;
+      private final long[] seen;
+      private final int[] queue;
+      private final int mask;
+      private int from;
+      private int head;
+      private int tail;
+      private int reached;
+
+      Side(int widest) {
+         parent = new int[widest];
+         seen = new long[(widest + 63) / 64];
+         int capacity = Integer.highestOneBit(Math.max(1, widest));
+         if (capacity < widest) {
+            capacity <<= 1;
+         }
+         queue = new int[capacity];
+         mask = capacity - 1;
+      }
+
+      /**
+       * Starts a search from root among the size words whose ids start
+       * at from.
+       */
+      void reset(int root, int from, int size) {
+         this.from = from;
+         Arrays.fill(seen, 0, (size + 63) / 64, 0L);
+         head = 0;
+         tail = 0;
+         reached = 0;
+         reach(root, -1);
+      }
+
+      boolean isEmpty() {
+         return head == tail;
+      }
+
+      int frontier() {
+         return tail - head;
+      }
+
+      boolean hasSeen(int v) {
+         int b = v - from;
+         return (seen[b >>> 6] & 1L << b) != 0;
+      }
+
+      int parent(int v) {
+         return parent[v - from];
+      }
+
+      private void reach(int v, int u) {
+         int b = v - from;
+         seen[b >>> 6] |= 1L << b;
+         parent[b] = u;
+         queue[tail++ & mask] = v;
+         reached++;
+      }
+
+      /**
+       * Expands the words of the current frontier until one reaches the
+       * target.
+       *
+       * @return the target, or -1 if the level did not reach it
+       */
+      int expandLevel(int target) {
+         int level = tail;
+         while (head != level) {
+            int u = queue[head++ & mask];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+               int v = targets[e];
+               if (!hasSeen(v)) {
+                  reach(v, u);
+                  if (v == target) {
+                     return v;
+                  }
+               }
+            }
+         }
+         return -1;
+      }
+
+      /**
+       * Expands the words of the current frontier until one reaches a
+       * word the other side has seen.
+       *
+       * @return that word, or -1 if the level met no such word
+       */
+      int expandLevel(Side other) {
+         int level = tail;
+         while (head != level) {
+            int u = queue[head++ & mask];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+               int v = targets[e];
+               if (!hasSeen(v)) {
+                  reach(v, u);
+                  if (other.hasSeen(v)) {
+                     return v;
+                  }
+               }
+            }
+         }
+         return -1;
+      }
+   }
+}
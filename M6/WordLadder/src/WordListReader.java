@@ -0,0 +1,215 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads the first word of every non-blank line of a word list, lower-cased.
+ *
+ * A FileInputStream is read through its channel: the rest of the file is
+ * memory-mapped in large chunks whose ends fall on line breaks, and the
+ * chunks are split into words in parallel. Any other stream is read in
+ * blocks on the calling thread. Either way bytes are split by hand rather
+ * than through Scanner, and ASCII words are lower-cased as they are copied,
+ * so each word becomes one String; only words with other characters are
+ * decoded with the default charset.
+ */
+final class WordListReader {
+
+   // bytes handled at a time
+   private static final int BLOCK_SIZE = 1 << 16;
+
+   // smallest chunk worth handing to another thread
+   private static final long MIN_CHUNK = 1 << 20;
+
+   // chunks per worker, so uneven chunks still spread evenly
+   private static final int CHUNKS_PER_WORKER = 4;
+
+   // how far to look past a chunk's nominal end for a line break
+   private static final int PROBE = 256;
+
+   private WordListReader() {
+   }
+
+   /**
+    * Adds the first word of every non-blank line of in to words, in file
+    * order. The stream is read to its end but not closed.
+    *
+    * @param in the word list
+    * @param words where the words go
+    * @throws IOException if the stream cannot be read
+    */
+   static void readFirstWords(InputStream in, Collection<String> words)
+         throws IOException {
+      if (in instanceof FileInputStream) {
+         readChunks(((FileInputStream) in).getChannel(), words);
+         return;
+      }
+      FirstWords tokens = new FirstWords();
+      byte[] block = new byte[BLOCK_SIZE];
+      int n;
+      while ((n = in.read(block)) > 0) {
+         tokens.feed(block, n);
+      }
+      tokens.finish();
+      words.addAll(tokens.words);
+   }
+
+   /**
+    * Reads from the channel's position to the end of its file.
+    */
+   private static void readChunks(FileChannel channel,
+                                  Collection<String> words)
+         throws IOException {
+      List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+      for (long[] chunk : chunks(channel)) {
+         tasks.add(new ChunkTask(channel.map(FileChannel.MapMode.READ_ONLY,
+               chunk[0], chunk[1] - chunk[0])));
+      }
+      ForkJoinTask.invokeAll(tasks);
+      for (ChunkTask task : tasks) {
+         words.addAll(task.join());
+      }
+      channel.position(channel.size());
+   }
+
+   /**
+    * Splits the rest of a file into [start, end) ranges that each end just
+    * after a line break, or at the end of the file.
+    */
+   private static List<long[]> chunks(FileChannel channel) throws IOException {
+      long size = channel.size();
+      int workers = Runtime.getRuntime().availableProcessors();
+      long start = channel.position();
+      long target = Math.max(MIN_CHUNK,
+            (size - start) / (workers * CHUNKS_PER_WORKER));
+      target = Math.min(target, Integer.MAX_VALUE - PROBE);
+      List<long[]> chunks = new ArrayList<long[]>();
+      ByteBuffer probe = ByteBuffer.allocate(PROBE);
+      while (start < size) {
+         long end = start + target;
+         while (end < size) {
+            probe.clear();
+            int n = channel.read(probe, end);
+            int i = 0;
+            while (i < n && probe.get(i) != '\n') {
+               i++;
+            }
+            end += i;
+            if (i < n) {
+               end++;
+               break;
+            }
+         }
+         end = Math.min(end, size);
+         chunks.add(new long[] {start, end});
+         start = end;
+      }
+      return chunks;
+   }
+
+   /**
+    * Splits one mapped chunk into words.
+    */
+   private static final class ChunkTask extends RecursiveTask<List<String>> {
+      private static final long serialVersionUID = 1L;
+
+      private final transient MappedByteBuffer bytes;
+
+      ChunkTask(MappedByteBuffer bytes) {
+         this.bytes = bytes;
+      }
+
+      @Override
+      protected List<String> compute() {
+         FirstWords tokens = new FirstWords();
+         byte[] block = new byte[BLOCK_SIZE];
+         while (bytes.hasRemaining()) {
+            int n = Math.min(block.length, bytes.remaining());
+            bytes.get(block, 0, n);
+            tokens.feed(block, n);
+         }
+         tokens.finish();
+         return tokens.words;
+      }
+   }
+
+   /**
+    * Collects the first word of each line from bytes fed to it in pieces.
+    */
+   private static final class FirstWords {
+      private final List<String> words = new ArrayList<String>();
+      private byte[] token = new byte[64];
+      private int length;
+      private boolean ascii = true;
+      // 0: before a word, 1: in a word, 2: skipping the rest of a line
+      private int state;
+
+      void feed(byte[] block, int n) {
+         for (int i = 0; i < n; i++) {
+            byte b = block[i];
+            boolean space = isSpace(b);
+            if (state == 0 && !space) {
+               state = 1;
+            }
+            if (state == 1) {
+               if (!space) {
+                  if (length == token.length) {
+                     token = Arrays.copyOf(token, length * 2);
+                  }
+                  token[length++] = b;
+                  ascii &= b >= 0;
+                  continue;
+               }
+               words.add(toWord(token, length, ascii));
+               length = 0;
+               ascii = true;
+               state = 2;
+            }
+            if (state == 2 && (b == '\n' || b == '\r')) {
+               state = 0;
+            }
+         }
+      }
+
+      void finish() {
+         if (length > 0) {
+            words.add(toWord(token, length, ascii));
+            length = 0;
+         }
+      }
+   }
+
+   private static String toWord(byte[] token, int length, boolean ascii) {
+      if (!ascii) {
+         String word = new String(token, 0, length, Charset.defaultCharset());
+         for (int i = 0; i < word.length(); i++) {
+            if (Character.isWhitespace(word.charAt(i))) {
+               word = word.substring(0, i);
+               break;
+            }
+         }
+         return word.toLowerCase();
+      }
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+         int c = token[i];
+         chars[i] = (char) (c >= 'A' && c <= 'Z' ? c + 32 : c);
+      }
+      return new String(chars);
+   }
+
+   // ASCII whitespace as Character.isWhitespace sees it
+   private static boolean isSpace(byte b) {
+      return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+   }
+}
@@ -0,0 +1,244 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * BatchSolver.java
+ * Solves a file of boards and writes one JSON object per board (NDJSON).
+ *
+ * Each line of the input holds one board in row-major order, either as
+ * cells separated by spaces or commas, or as a single string with one
+ * character per cell. Boards are solved on a pool of worker threads, each
+ * with its own GameEngine, and all engines share one lexicon. At most a few
+ * boards per worker are in flight at once, so memory stays bounded however
+ * long the input is. Output lines appear in completion order; each carries
+ * the input line number.
+ *
+ *      java BatchSolver Wordlist.txt boards.txt [out.ndjson] [threads] [min]
+ */
+public class BatchSolver {
+
+   // boards queued or being solved per worker thread
+   private static final int IN_FLIGHT_PER_WORKER = 4;
+
+   private static final int DEFAULT_MINIMUM_LENGTH = 3;
+
+   // 1.0E9 ns per second
+   private static final double SECONDS = 1_000_000_000d;
+
+   /** Drives execution. */
+   public static void main(String[] args) throws Exception {
+      if (args.length < 2) {
+         System.err.println("usage: java BatchSolver wordlist boards"
+               + " [out.ndjson] [threads] [min]");
+         System.exit(1);
+      }
+      String lexicon = args[0];
+      Writer out = args.length > 2 && !args[2].equals("-")
+            ? new FileWriter(args[2]) : new OutputStreamWriter(System.out);
+      int threads = args.length > 3 ? Integer.parseInt(args[3])
+            : Runtime.getRuntime().availableProcessors();
+      int min = args.length > 4 ? Integer.parseInt(args[4])
+            : DEFAULT_MINIMUM_LENGTH;
+
+      BatchSolver batch = new BatchSolver(lexicon, threads, min);
+      BufferedReader in = new BufferedReader(new FileReader(args[1]));
+      try {
+         batch.run(in, out);
+      }
+      finally {
+         in.close();
+         out.close();
+      }
+      System.err.println(batch.report());
+   }
+
+   private final String lexiconFile;
+   private final int threads;
+   private final int minimumLength;
+   private final LexiconCache lexicons = new LexiconCache();
+   private final ThreadLocal<GameEngine> engines;
+   private final LatencyHistogram latency = new LatencyHistogram();
+   private final AtomicLong failed = new AtomicLong();
+   private long elapsed;
+
+   /**
+    * Creates a batch solver.
+    *
+    * @param lexiconFile the word list or lexicon image every engine loads
+    * @param threads the number of worker threads
+    * @param minimumLength the minimum length of words to report
+    */
+   public BatchSolver(String lexiconFile, int threads, int minimumLength) {
+      if (threads < 1 || minimumLength < 1) {
+         throw new IllegalArgumentException();
+      }
+      this.lexiconFile = lexiconFile;
+      this.threads = threads;
+      this.minimumLength = minimumLength;
+      engines = ThreadLocal.withInitial(this::newEngine);
+   }
+
+   /**
+    * Creates an engine with the lexicon loaded.
+    *
+    * @throws UncheckedIOException if the lexicon cannot be loaded
+    */
+   private GameEngine newEngine() {
+      // each board is solved once, so caching solutions only costs memory
+      GameEngine engine = new GameEngine(lexicons, SolutionCache.none());
+      try {
+         engine.loadLexicon(lexiconFile);
+      }
+      catch (FileNotFoundException e) {
+         throw new UncheckedIOException(e);
+      }
+      catch (IllegalArgumentException e) {
+         // loadLexicon reports unreadable files this way
+         throw new UncheckedIOException(
+               new IOException("cannot load lexicon " + lexiconFile, e));
+      }
+      return engine;
+   }
+
+   /**
+    * Solves every board read from in and writes the results to out.
+    *
+    * @param in the boards, one per line
+    * @param out where the NDJSON results go
+    * @throws IOException if reading or writing fails
+    * @throws InterruptedException if interrupted while waiting for workers
+    */
+   public void run(BufferedReader in, Writer out)
+         throws IOException, InterruptedException {
+      // fail fast on a bad lexicon, and keep it cached for the workers
+      GameEngine first = newEngine();
+
+      BufferedWriter writer = new BufferedWriter(out);
+      AtomicReference<IOException> writeError =
+            new AtomicReference<IOException>();
+      Semaphore window = new Semaphore(threads * IN_FLIGHT_PER_WORKER);
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      long start = System.nanoTime();
+      try {
+         String line;
+         long lineNumber = 0;
+         while ((line = in.readLine()) != null && writeError.get() == null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+               continue;
+            }
+            String board = line;
+            long number = lineNumber;
+            window.acquire();
+            pool.execute(() -> {
+               try {
+                  String result = solve(number, board);
+                  synchronized (writer) {
+                     writer.write(result);
+                     writer.newLine();
+                  }
+               }
+               catch (IOException e) {
+                  writeError.compareAndSet(null, e);
+               }
+               finally {
+                  window.release();
+               }
+            });
+         }
+      }
+      finally {
+         pool.shutdown();
+         pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+         elapsed = System.nanoTime() - start;
+         first.close();
+      }
+      writer.flush();
+      if (writeError.get() != null) {
+         throw writeError.get();
+      }
+   }
+
+   /**
+    * Solves one board and formats the result as a JSON object.
+    */
+   private String solve(long lineNumber, String line) {
+      StringBuilder json = new StringBuilder();
+      json.append("{\"line\":").append(lineNumber);
+      try {
+         GameEngine engine = engines.get();
+         long start = System.nanoTime();
+         engine.setBoard(parseBoard(line));
+         SortedSet<String> words = engine.getAllScorableWords(minimumLength);
+         long nanos = System.nanoTime() - start;
+         latency.record(nanos);
+         int score = 0;
+         for (String word : words) {
+            score += (word.length() - minimumLength) + 1;
+         }
+         json.append(",\"count\":").append(words.size());
+         json.append(",\"score\":").append(score);
+         json.append(",\"micros\":").append(nanos / 1000);
+         json.append(",\"words\":");
+         Json.array(json, words);
+      }
+      catch (IllegalArgumentException e) {
+         failed.incrementAndGet();
+         json.append(",\"error\":");
+         Json.quote(json, e.getMessage() == null ? "invalid board"
+               : e.getMessage());
+      }
+      catch (UncheckedIOException e) {
+         // a worker's engine could not load the lexicon
+         failed.incrementAndGet();
+         json.append(",\"error\":");
+         Json.quote(json, e.getCause().getMessage());
+      }
+      return json.append('}').toString();
+   }
+
+   /**
+    * Splits a line into board cells. A single token is read as one
+    * character per cell.
+    */
+   static String[] parseBoard(String line) {
+      String[] cells = line.trim().split("[\\s,]+");
+      if (cells.length == 1) {
+         String letters = cells[0];
+         cells = new String[letters.length()];
+         for (int i = 0; i < cells.length; i++) {
+            cells[i] = String.valueOf(letters.charAt(i));
+         }
+      }
+      for (int i = 0; i < cells.length; i++) {
+         cells[i] = cells[i].toUpperCase();
+      }
+      return cells;
+   }
+
+   /**
+    * Summarizes throughput and per-board latency of the last run.
+    *
+    * @return a one-line report
+    */
+   public String report() {
+      long boards = latency.count();
+      return String.format("%d boards solved (%d failed) in %.2fs,"
+            + " %.1f boards/s, latency %s", boards, failed.get(), elapsed / SECONDS,
+            boards / Math.max(elapsed / SECONDS, 1e-9), latency);
+   }
+}
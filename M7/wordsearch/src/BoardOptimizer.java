@@ -0,0 +1,260 @@
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BoardOptimizer.java
+ * Searches for boards with a high total score by simulated annealing.
+ *
+ * Each chain starts from a random board and repeatedly swaps the tiles of
+ * two cells, keeping the swap if the score does not drop, and otherwise
+ * with a probability that shrinks as the chain cools. Swaps keep the
+ * board's letters, only their arrangement changes. A swap is rescored
+ * with GameEngine.setCell, which searches only the paths through the
+ * changed cells; a rejected swap puts back the board and solution it
+ * replaced, so it costs nothing to undo. Chains run in parallel, each
+ * with its own engine and random generator seeded from the run's seed, so
+ * the same seed gives the same boards however many threads there are.
+ *
+ *      java BoardOptimizer Wordlist.txt [size] [chains] [steps] [seed]
+ *                          [min] [top]
+ */
+public class BoardOptimizer {
+
+   // letters weighted roughly by their frequency in English
+   private static final String LETTERS = "EEEEEEEEEEEETTTTTTTTTAAAAAAAAO"
+         + "OOOOOOIIIIIIINNNNNNNSSSSSSHHHHHHRRRRRRDDDDLLLLCCCUUUMMWWFFGGYYPP"
+         + "BBVKJXQZ";
+
+   // the temperature falls geometrically from the first value to the second
+   private static final double HOT = 8.0;
+   private static final double COLD = 0.05;
+
+   /** Drives execution. */
+   public static void main(String[] args) throws Exception {
+      if (args.length < 1) {
+         System.err.println("usage: java BoardOptimizer wordlist [size]"
+               + " [chains] [steps] [seed] [min] [top]");
+         System.exit(1);
+      }
+      int size = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+      int chains = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+      int steps = args.length > 3 ? Integer.parseInt(args[3]) : 20_000;
+      long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+      int min = args.length > 5 ? Integer.parseInt(args[5]) : 3;
+      int top = args.length > 6 ? Integer.parseInt(args[6]) : 10;
+
+      BoardOptimizer optimizer =
+            new BoardOptimizer(args[0], size, min, steps, seed);
+      long start = System.nanoTime();
+      List<Result> results = optimizer.run(chains,
+            Runtime.getRuntime().availableProcessors());
+      System.err.printf("%d chains of %d steps in %.2fs%n", chains, steps,
+            (System.nanoTime() - start) / 1e9);
+      for (int i = 0; i < Math.min(top, results.size()); i++) {
+         System.out.println((i + 1) + ". " + results.get(i));
+      }
+   }
+
+   private final String lexiconFile;
+   private final int size;
+   private final int minimumLength;
+   private final int steps;
+   private final long seed;
+   private final LexiconCache lexicons = new LexiconCache();
+
+   /**
+    * Creates an optimizer.
+    *
+    * @param lexiconFile the word list or lexicon image to score with
+    * @param size the board width
+    * @param minimumLength the minimum length of scoring words
+    * @param steps the swaps each chain tries
+    * @param seed the seed every chain's randomness derives from
+    */
+   public BoardOptimizer(String lexiconFile, int size, int minimumLength,
+                         int steps, long seed) {
+      if (size < 2 || minimumLength < 1 || steps < 0) {
+         throw new IllegalArgumentException();
+      }
+      this.lexiconFile = lexiconFile;
+      this.size = size;
+      this.minimumLength = minimumLength;
+      this.steps = steps;
+      this.seed = seed;
+   }
+
+   /**
+    * Runs the chains and ranks the best board each one found.
+    *
+    * @param chains the number of independent chains
+    * @param threads the number of chains run at once
+    * @return one result per chain, highest score first
+    * @throws InterruptedException if interrupted while waiting for chains
+    */
+   public List<Result> run(int chains, int threads)
+         throws InterruptedException {
+      if (chains < 1 || threads < 1) {
+         throw new IllegalArgumentException();
+      }
+      // keep the lexicon cached between chains
+      GameEngine first = newEngine();
+      ExecutorService pool = Executors.newFixedThreadPool(threads);
+      try {
+         List<Future<Result>> futures = new ArrayList<Future<Result>>();
+         for (int chain = 0; chain < chains; chain++) {
+            long chainSeed = seed * 1_000_003L + chain;
+            Callable<Result> task = () -> anneal(chainSeed);
+            futures.add(pool.submit(task));
+         }
+         List<Result> results = new ArrayList<Result>();
+         for (Future<Result> future : futures) {
+            try {
+               results.add(future.get());
+            }
+            catch (ExecutionException e) {
+               throw new IllegalStateException(e.getCause());
+            }
+         }
+         results.sort((a, b) -> a.score != b.score ? b.score - a.score
+               : a.toString().compareTo(b.toString()));
+         return results;
+      }
+      finally {
+         pool.shutdownNow();
+         first.close();
+      }
+   }
+
+   private GameEngine newEngine() {
+      // boards are rescored through setCell, not looked up
+      GameEngine engine = new GameEngine(lexicons, SolutionCache.none());
+      try {
+         engine.loadLexicon(lexiconFile);
+      }
+      catch (FileNotFoundException e) {
+         throw new UncheckedIOException(e);
+      }
+      return engine;
+   }
+
+   /**
+    * Runs one chain and returns the best board it visited.
+    */
+   private Result anneal(long chainSeed) {
+      Random random = new Random(chainSeed);
+      String[] board = new String[size * size];
+      for (int i = 0; i < board.length; i++) {
+         board[i] = String.valueOf(
+               LETTERS.charAt(random.nextInt(LETTERS.length())));
+      }
+      GameEngine engine = newEngine();
+      try {
+         engine.setBoard(board);
+         int score = engine.getTotalScore(minimumLength);
+         int bestScore = score;
+         String[] best = board.clone();
+         double cooling = steps == 0 ? 1 : Math.pow(COLD / HOT, 1.0 / steps);
+         double temperature = HOT;
+         for (int step = 0; step < steps; step++) {
+            int a = random.nextInt(board.length);
+            int b = random.nextInt(board.length);
+            if (!board[a].equals(board[b])) {
+               Solution before = engine.remembered();
+               String[] undo = board.clone();
+               swap(engine, board, a, b);
+               int next = engine.getTotalScore(minimumLength);
+               int delta = next - score;
+               if (delta >= 0
+                     || random.nextDouble() < Math.exp(delta / temperature)) {
+                  score = next;
+                  if (score > bestScore) {
+                     bestScore = score;
+                     best = board.clone();
+                  }
+               }
+               else {
+                  board = undo;
+                  engine.restore(board, before);
+               }
+            }
+            temperature *= cooling;
+         }
+         // rescore the winner from scratch
+         engine.setBoard(best);
+         int words = engine.getAllScorableWords(minimumLength).size();
+         return new Result(best, size, engine.getTotalScore(minimumLength),
+               words, chainSeed);
+      }
+      finally {
+         engine.close();
+      }
+   }
+
+   private static void swap(GameEngine engine, String[] board, int a, int b) {
+      String tile = board[a];
+      board[a] = board[b];
+      board[b] = tile;
+      engine.setCell(a, board[a]);
+      engine.setCell(b, board[b]);
+   }
+
+   /**
+    * Holds the best board found by one chain.
+    */
+   public static final class Result {
+      private final String[] board;
+      private final int size;
+      private final int score;
+      private final int words;
+      private final long seed;
+
+      Result(String[] board, int size, int score, int words, long seed) {
+         this.board = board;
+         this.size = size;
+         this.score = score;
+         this.words = words;
+         this.seed = seed;
+      }
+
+      /** Returns the board in row-major order. */
+      public String[] board() {
+         return board.clone();
+      }
+
+      /** Returns the total score of the board. */
+      public int score() {
+         return score;
+      }
+
+      /** Returns the number of scorable words on the board. */
+      public int words() {
+         return words;
+      }
+
+      /** Returns the seed of the chain that found the board. */
+      public long seed() {
+         return seed;
+      }
+
+      @Override
+      public String toString() {
+         StringBuilder rows = new StringBuilder();
+         for (int i = 0; i < board.length; i++) {
+            if (i > 0 && i % size == 0) {
+               rows.append('/');
+            }
+            rows.append(board[i]);
+         }
+         return String.format("score %d, %d words, %s", score, words, rows);
+      }
+   }
+}
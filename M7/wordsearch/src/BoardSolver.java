@@ -0,0 +1,525 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Searches one board for lexicon words.
+ *
+ * The search is an iterative depth-first walk over int arrays: a shared
+ * neighbor table for the board size, a stack of cells and lexicon nodes,
+ * a visited bitmask and a char buffer holding the letters spelled so far.
+ * None of these are reallocated while searching, so visiting a cell
+ * creates no garbage; a String is only built when the caller asks for a
+ * word that was found.
+ *
+ * Cells may hold more than one character. Distinct tiles are kept once in
+ * a tile table, and a multi-character tile moves the lexicon node down by
+ * all of its characters in a single step.
+ *
+ * The board's letters are counted once, and a branch is skipped when every
+ * lexicon word below it needs a letter the board lacks or holds only once,
+ * as reported by Lexicon.letters().
+ *
+ * A solver is not thread-safe. Create one per thread; the neighbor tables
+ * are shared.
+ */
+final class BoardSolver {
+
+   private static final int MAX_ADJ = 8;
+   private static final int STRIDE = MAX_ADJ + 1;
+   // search steps between checks of the stop condition
+   private static final int CHECK_INTERVAL = 4096;
+
+   // neighbor tables by board width: entry cell * STRIDE holds the number of
+   // neighbors and the neighbors themselves follow it
+   private static final ConcurrentHashMap<Integer, int[]> NEIGHBORS =
+         new ConcurrentHashMap<Integer, int[]>();
+
+   private final Lexicon lexicon;
+   private final int cellCount;
+   private final int width;
+   private final char[][] tiles;
+   private final int[] cellTile;
+   private final int[] neighbors;
+   // the board's letters, in the form of Lexicon.letters()
+   private final long boardLetters;
+
+   private final int[] path;
+   private final int[] nodes;
+   private final int[] ends;
+   private final int[] cursor;
+   private final long[] visited;
+   private final char[] buffer;
+   private int depth;
+
+   private int minimumLength;
+   private int firstStart;
+   private int nextStart;
+   private int lastStart;
+   private int[] order;
+   private int target;
+   private int through = -1;
+   private BooleanSupplier stop;
+   private int countdown = CHECK_INTERVAL;
+   private boolean stopped;
+
+   // work done since the counters were last reset, read by SolverStats
+   private long expanded;
+   private long probes;
+   private long pruned;
+   private long found;
+   private int deepest;
+
+   /**
+    * Creates a solver for a square board given in row-major order.
+    *
+    * @param lexicon the words to look for
+    * @param board the board cells, length N^2
+    */
+   BoardSolver(Lexicon lexicon, String[] board) {
+      this.lexicon = lexicon;
+      cellCount = board.length;
+      width = (int) Math.round(Math.sqrt(cellCount));
+      // each distinct tile string is stored once and cells refer to it
+      HashMap<String, Integer> interned = new HashMap<String, Integer>();
+      cellTile = new int[cellCount];
+      int totalChars = 0;
+      long letters = 0;
+      for (int i = 0; i < cellCount; i++) {
+         for (int j = 0; j < board[i].length(); j++) {
+            letters = Lexicon.withLetter(letters, board[i].charAt(j));
+         }
+         Integer tile = interned.get(board[i]);
+         if (tile == null) {
+            tile = interned.size();
+            interned.put(board[i], tile);
+         }
+         cellTile[i] = tile;
+         totalChars += board[i].length();
+      }
+      tiles = new char[interned.size()][];
+      for (Map.Entry<String, Integer> tile : interned.entrySet()) {
+         tiles[tile.getValue()] = tile.getKey().toCharArray();
+      }
+      boardLetters = letters;
+      neighbors = NEIGHBORS.computeIfAbsent(width, BoardSolver::neighborTable);
+      path = new int[cellCount];
+      nodes = new int[cellCount];
+      ends = new int[cellCount];
+      cursor = new int[cellCount];
+      visited = new long[(cellCount + 63) >>> 6];
+      buffer = new char[totalChars];
+   }
+
+   /**
+    * Builds the neighbor table for a board of the given width, listing each
+    * cell's neighbors column by column from the upper left.
+    */
+   private static int[] neighborTable(int width) {
+      int[] table = new int[width * width * STRIDE];
+      for (int cell = 0; cell < width * width; cell++) {
+         int x = cell % width;
+         int y = cell / width;
+         int k = cell * STRIDE;
+         for (int i = x - 1; i <= x + 1; i++) {
+            for (int j = y - 1; j <= y + 1; j++) {
+               if ((i != x || j != y) && i >= 0 && i < width
+                     && j >= 0 && j < width) {
+                  table[k + 1 + table[k]++] = (j * width) + i;
+               }
+            }
+         }
+      }
+      return table;
+   }
+
+   /**
+    * Returns the number of cells on the board.
+    *
+    * @return number of cells
+    */
+   int cellCount() {
+      return cellCount;
+   }
+
+   /**
+    * Prepares to enumerate the words that start in cells from through
+    * to - 1 and have at least minimumLength characters.
+    *
+    * @param from first starting cell
+    * @param to one past the last starting cell
+    * @param minimumLength the shortest word to report
+    */
+   void start(int from, int to, int minimumLength) {
+      this.minimumLength = minimumLength;
+      firstStart = from;
+      nextStart = from;
+      lastStart = to;
+      order = null;
+      target = 0;
+      through = -1;
+      stopped = false;
+      while (depth > 0) {
+         pop();
+      }
+   }
+
+   /**
+    * Prepares to enumerate the words on the whole board, trying first the
+    * starting cells that should yield the most score per step searched.
+    * Those are the cells with the fewest neighbors that continue a prefix:
+    * their searches stay narrow, while a cell with many live neighbors
+    * spends most of its steps on prefixes that lead nowhere. A search cut
+    * short therefore tends to have found more of the board's score than
+    * one that went row by row. Cells that start no prefix come last.
+    *
+    * @param minimumLength the shortest word to report
+    */
+   void startBestFirst(int minimumLength) {
+      start(0, cellCount, minimumLength);
+      // sort by live neighbors, fewest first, then by cell
+      long[] keys = new long[cellCount];
+      for (int cell = 0; cell < cellCount; cell++) {
+         int node = follow(lexicon.root(), cell);
+         int live = MAX_ADJ + 1;
+         if (node != Lexicon.NONE) {
+            live = 0;
+            int base = cell * STRIDE;
+            for (int i = 1; i <= neighbors[base]; i++) {
+               if (follow(node, neighbors[base + i]) != Lexicon.NONE) {
+                  live++;
+               }
+            }
+         }
+         keys[cell] = (long) live << 32 | cell;
+      }
+      Arrays.sort(keys);
+      order = new int[cellCount];
+      for (int i = 0; i < cellCount; i++) {
+         order[i] = (int) keys[i];
+      }
+   }
+
+   /**
+    * Skips every branch that cannot lead to a word of at least the given
+    * length. The target may be raised while searching, and is cleared by
+    * start().
+    *
+    * @param length the shortest word still of interest
+    */
+   void skipShorterThan(int length) {
+      target = length;
+   }
+
+   /**
+    * Reports only words whose path passes through the given cell, and skips
+    * every branch that is too far from it to get there before its word
+    * ends. Cleared by start().
+    *
+    * @param cell the cell every reported path must use
+    */
+   void requireCell(int cell) {
+      through = cell;
+   }
+
+   /**
+    * Makes next() give up once the given condition holds. The condition is
+    * checked every few thousand steps, not on every step.
+    *
+    * @param condition the stop condition, or null to never stop early
+    */
+   void stopWhen(BooleanSupplier condition) {
+      stop = condition;
+   }
+
+   /**
+    * Determines if the last search ended because its stop condition held.
+    *
+    * @return true if the search was stopped early, false otherwise
+    */
+   boolean stopped() {
+      return stopped;
+   }
+
+   /**
+    * Returns how many starting cells have been searched completely since
+    * the last start.
+    *
+    * @return number of finished starting cells
+    */
+   int startsDone() {
+      return nextStart - firstStart - (depth > 0 ? 1 : 0);
+   }
+
+   /**
+    * Advances the search to the next word found on the board. The same
+    * word is reported once for every path that spells it.
+    *
+    * @return true if a word was found, false if the search is finished
+    */
+   boolean next() {
+      while (true) {
+         if (--countdown == 0) {
+            countdown = CHECK_INTERVAL;
+            if (stop != null && stop.getAsBoolean()) {
+               stopped = true;
+               return false;
+            }
+         }
+         if (depth == 0) {
+            if (nextStart >= lastStart) {
+               return false;
+            }
+            int cell = order == null ? nextStart++ : order[nextStart++];
+            int node = follow(lexicon.root(), cell);
+            if (node != Lexicon.NONE && reaches(node, 0, cell)) {
+               push(cell, node);
+               if (lexicon.isWord(node) && ends[0] >= minimumLength
+                     && passesThrough()) {
+                  found++;
+                  return true;
+               }
+            }
+            else {
+               pruned++;
+            }
+            continue;
+         }
+         int top = depth - 1;
+         int base = path[top] * STRIDE;
+         int slot = cursor[top]++;
+         if (slot >= neighbors[base]) {
+            pop();
+            continue;
+         }
+         int cell = neighbors[base + 1 + slot];
+         if ((visited[cell >>> 6] & (1L << cell)) != 0) {
+            continue;
+         }
+         int node = follow(nodes[top], cell);
+         if (node != Lexicon.NONE && reaches(node, ends[top], cell)) {
+            push(cell, node);
+            if (lexicon.isWord(node) && ends[top + 1] >= minimumLength
+                  && passesThrough()) {
+               found++;
+               return true;
+            }
+         }
+         else {
+            pruned++;
+         }
+      }
+   }
+
+   /**
+    * Returns the word the search is positioned on.
+    *
+    * @return the current word
+    */
+   String word() {
+      return new String(buffer, 0, length());
+   }
+
+   /**
+    * Returns the cells that spell the current word.
+    *
+    * @return a copy of the current path
+    */
+   int[] path() {
+      int[] copy = new int[depth];
+      System.arraycopy(path, 0, copy, 0, depth);
+      return copy;
+   }
+
+   /**
+    * Returns the number of characters in the current word.
+    *
+    * @return length of the current word
+    */
+   int length() {
+      return depth == 0 ? 0 : ends[depth - 1];
+   }
+
+   /**
+    * Finds a path that spells the given word, trying starting cells in
+    * row-major order.
+    *
+    * @param word the word to look for
+    * @return the cells of the path in order, or null if word is not on
+    *     the board
+    */
+   int[] find(String word) {
+      start(0, 0, 0);
+      int length = word.length();
+      for (int first = 0; first < cellCount && length > 0; first++) {
+         if (!matches(word, 0, first)) {
+            continue;
+         }
+         pushPath(first);
+         while (depth > 0) {
+            if (ends[depth - 1] == length) {
+               int[] found = new int[depth];
+               System.arraycopy(path, 0, found, 0, depth);
+               start(0, 0, 0);
+               return found;
+            }
+            int top = depth - 1;
+            int base = path[top] * STRIDE;
+            int slot = cursor[top]++;
+            if (slot >= neighbors[base]) {
+               pop();
+               continue;
+            }
+            int cell = neighbors[base + 1 + slot];
+            if ((visited[cell >>> 6] & (1L << cell)) == 0
+                  && matches(word, ends[top], cell)) {
+               pushPath(cell);
+            }
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Returns the number of cells pushed onto the search path.
+    */
+   long expanded() {
+      return expanded;
+   }
+
+   /**
+    * Returns the number of lexicon or word lookups made for a cell.
+    */
+   long probes() {
+      return probes;
+   }
+
+   /**
+    * Returns the number of cells rejected because no wanted word continues
+    * through them.
+    */
+   long pruned() {
+      return pruned;
+   }
+
+   /**
+    * Returns the number of words reported, counting repeats.
+    */
+   long found() {
+      return found;
+   }
+
+   /**
+    * Returns the longest path reached.
+    */
+   int deepest() {
+      return deepest;
+   }
+
+   /**
+    * Sets every work counter back to zero.
+    */
+   void resetCounters() {
+      expanded = 0;
+      probes = 0;
+      pruned = 0;
+      found = 0;
+      deepest = 0;
+   }
+
+   private boolean matches(String word, int offset, int cell) {
+      probes++;
+      char[] tile = tiles[cellTile[cell]];
+      if (tile.length == 0 || offset + tile.length > word.length()) {
+         return false;
+      }
+      for (int i = 0; i < tile.length; i++) {
+         if (word.charAt(offset + i) != tile[i]) {
+            return false;
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Determines if stepping onto cell, reaching node after offset earlier
+    * characters, can still spell a word that the board has the letters for,
+    * is as long as the target, and gets to the required cell.
+    */
+   private boolean reaches(int node, int offset, int cell) {
+      if ((lexicon.letters(node) & ~boardLetters) != 0) {
+         // every word below needs a letter the board lacks or has only once
+         return false;
+      }
+      if (through >= 0 && (visited[through >>> 6] & (1L << through)) == 0
+            && distance(cell, through) > lexicon.height(node)) {
+         // every later cell adds at least one character
+         return false;
+      }
+      return target == 0 || offset + tiles[cellTile[cell]].length
+            + lexicon.height(node) >= target;
+   }
+
+   private boolean passesThrough() {
+      return through < 0 || (visited[through >>> 6] & (1L << through)) != 0;
+   }
+
+   /**
+    * Returns the fewest steps between two cells.
+    */
+   private int distance(int from, int to) {
+      return Math.max(Math.abs(from % width - to % width),
+            Math.abs(from / width - to / width));
+   }
+
+   private int follow(int node, int cell) {
+      probes++;
+      char[] tile = tiles[cellTile[cell]];
+      if (tile.length == 1) {
+         return lexicon.child(node, tile[0]);
+      }
+      return lexicon.walk(node, tile);
+   }
+
+   private void push(int cell, int node) {
+      int offset = depth == 0 ? 0 : ends[depth - 1];
+      char[] tile = tiles[cellTile[cell]];
+      if (tile.length == 1) {
+         buffer[offset] = tile[0];
+      }
+      else {
+         System.arraycopy(tile, 0, buffer, offset, tile.length);
+      }
+      path[depth] = cell;
+      nodes[depth] = node;
+      ends[depth] = offset + tile.length;
+      cursor[depth] = 0;
+      visited[cell >>> 6] |= 1L << cell;
+      depth++;
+      expanded++;
+      if (depth > deepest) {
+         deepest = depth;
+      }
+   }
+
+   private void pushPath(int cell) {
+      int offset = depth == 0 ? 0 : ends[depth - 1];
+      path[depth] = cell;
+      ends[depth] = offset + tiles[cellTile[cell]].length;
+      cursor[depth] = 0;
+      visited[cell >>> 6] |= 1L << cell;
+      depth++;
+      expanded++;
+      if (depth > deepest) {
+         deepest = depth;
+      }
+   }
+
+   private void pop() {
+      depth--;
+      int cell = path[depth];
+      visited[cell >>> 6] &= ~(1L << cell);
+   }
+}
@@ -0,0 +1,516 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Provides an immutable Lexicon that keeps every word in one byte array.
+ *
+ * Words are sorted and grouped into blocks of 16. The first word of a
+ * block is stored whole; each later word stores only how many leading
+ * bytes it shares with the word before it and the bytes that differ. An
+ * int table holds where each block starts. A lookup binary searches the
+ * first words of the blocks and then decodes one block, so whole-word and
+ * prefix queries cost O(log n) byte comparisons and no allocation beyond
+ * a scratch buffer.
+ *
+ * Characters are encoded one UTF-16 unit at a time in the UTF-8 manner
+ * (one byte for ASCII), which keeps the bytes in the same order as
+ * String.compareTo.
+ *
+ * This trades speed for space. Moving down the word tree with child()
+ * costs a search per character rather than the trie's constant time, so
+ * this lexicon suits validating words more than solving boards. Nodes
+ * encode the first word below a prefix and the prefix's length in bytes,
+ * so child() reaches prefixes of at most MAX_DEPTH bytes; contains() and
+ * containsPrefix() have no such limit.
+ *
+ * The arrays can be saved as an image file, which LexiconCache loads in
+ * place of the word list. Image layout, big-endian:
+ *    int magic, int version, int word count, int longest word in bytes,
+ *    int block count, int byte count, then the block offsets as ints,
+ *    then the bytes.
+ *
+ * Compile a word list into an image with
+ *
+ *      java FrontCodedLexicon Wordlist.txt Wordlist.fcl
+ */
+public final class FrontCodedLexicon implements Lexicon {
+
+   /** The longest prefix, in encoded bytes, that a node can stand for. */
+   public static final int MAX_DEPTH = 63;
+
+   private static final int BLOCK_SIZE = 16;
+   private static final int DEPTH_BITS = 6;
+   private static final int MAX_WORDS = 1 << (Integer.SIZE - 1 - DEPTH_BITS);
+   private static final int ARRAY_HEADER_BYTES = 16;
+   private static final int MAGIC = 0x57534346;
+   private static final int VERSION = 1;
+   private static final int HEADER_BYTES = 24;
+
+   private final byte[] bytes;
+   private final int[] offsets;
+   private final int size;
+   private final int longest;
+
+   /**
+    * Builds a lexicon containing the given words.
+    *
+    * @param words the words to store; need not be sorted or unique
+    */
+   public FrontCodedLexicon(Collection<String> words) {
+      this(sorted(words));
+   }
+
+   /**
+    * Builds a lexicon from words that are already in ascending natural
+    * order. Duplicates are allowed.
+    *
+    * @param sorted the words to store, in ascending order
+    * @throws IllegalArgumentException if there are more than 2^25 words
+    */
+   public FrontCodedLexicon(String[] sorted) {
+      byte[] out = new byte[Math.max(16, sorted.length * 4)];
+      int[] starts = new int[(sorted.length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+      byte[] previous = new byte[0];
+      int previousLength = 0;
+      int words = 0;
+      int length = 0;
+      int widest = 0;
+      for (String s : sorted) {
+         byte[] word = new byte[s.length() * 3];
+         int n = encode(s, word);
+         if (words > 0 && compare(word, n, previous, previousLength) == 0) {
+            continue;
+         }
+         if (words == MAX_WORDS) {
+            throw new IllegalArgumentException("too many words");
+         }
+         if (out.length - length < n + 10) {
+            out = Arrays.copyOf(out, Math.max(out.length * 2, length + n + 10));
+         }
+         if (words % BLOCK_SIZE == 0) {
+            starts[words / BLOCK_SIZE] = length;
+            length = writeInt(out, length, n);
+            System.arraycopy(word, 0, out, length, n);
+            length += n;
+         }
+         else {
+            int shared = 0;
+            int limit = Math.min(n, previousLength);
+            while (shared < limit && word[shared] == previous[shared]) {
+               shared++;
+            }
+            length = writeInt(out, length, shared);
+            length = writeInt(out, length, n - shared);
+            System.arraycopy(word, shared, out, length, n - shared);
+            length += n - shared;
+         }
+         previous = word;
+         previousLength = n;
+         widest = Math.max(widest, n);
+         words++;
+      }
+      bytes = Arrays.copyOf(out, length);
+      offsets = Arrays.copyOf(starts, (words + BLOCK_SIZE - 1) / BLOCK_SIZE);
+      size = words;
+      longest = widest;
+   }
+
+   private FrontCodedLexicon(byte[] bytes, int[] offsets, int size,
+                             int longest) {
+      this.bytes = bytes;
+      this.offsets = offsets;
+      this.size = size;
+      this.longest = longest;
+   }
+
+   /**
+    * Reads a whitespace-separated UTF-8 word list, upper-casing every word.
+    *
+    * @param file the word list
+    * @return a lexicon of the words in the file
+    * @throws IOException if the file cannot be read
+    */
+   public static FrontCodedLexicon fromWordList(File file) throws IOException {
+      return new FrontCodedLexicon(WordListReader.read(file));
+   }
+
+   /**
+    * Reads an image file written by write().
+    *
+    * @param file the image
+    * @return the lexicon in the image
+    * @throws IOException if the file cannot be read or is not an image
+    */
+   public static FrontCodedLexicon open(File file) throws IOException {
+      DataInputStream in = new DataInputStream(
+            new BufferedInputStream(new FileInputStream(file), 1 << 16));
+      try {
+         if (file.length() < HEADER_BYTES || in.readInt() != MAGIC) {
+            throw new IOException("not a front-coded lexicon image");
+         }
+         int version = in.readInt();
+         if (version != VERSION) {
+            throw new IOException("unsupported lexicon image version "
+                  + version + "; compile the word list again");
+         }
+         int size = in.readInt();
+         int longest = in.readInt();
+         int blocks = in.readInt();
+         int length = in.readInt();
+         if (file.length()
+               != HEADER_BYTES + (long) blocks * Integer.BYTES + length
+               || blocks != (size + BLOCK_SIZE - 1) / BLOCK_SIZE) {
+            throw new IOException("truncated lexicon image");
+         }
+         int[] offsets = new int[blocks];
+         for (int i = 0; i < blocks; i++) {
+            offsets[i] = in.readInt();
+         }
+         byte[] bytes = new byte[length];
+         in.readFully(bytes);
+         return new FrontCodedLexicon(bytes, offsets, size, longest);
+      }
+      finally {
+         in.close();
+      }
+   }
+
+   /**
+    * Determines if a file starts with the front-coded image header.
+    *
+    * @param file the file to check
+    * @return true if the file looks like an image, false otherwise
+    * @throws IOException if the file exists but cannot be read
+    */
+   public static boolean isImage(File file) throws IOException {
+      if (!file.isFile() || file.length() < HEADER_BYTES) {
+         return false;
+      }
+      DataInputStream in = new DataInputStream(new FileInputStream(file));
+      try {
+         return in.readInt() == MAGIC;
+      }
+      finally {
+         in.close();
+      }
+   }
+
+   /**
+    * Writes this lexicon to an image file.
+    *
+    * @param file the image to create or replace
+    * @throws IOException if the file cannot be written
+    */
+   public void write(File file) throws IOException {
+      DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+      try {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(size);
+         out.writeInt(longest);
+         out.writeInt(offsets.length);
+         out.writeInt(bytes.length);
+         for (int offset : offsets) {
+            out.writeInt(offset);
+         }
+         out.write(bytes);
+      }
+      finally {
+         out.close();
+      }
+   }
+
+   /** Compiles the word list named by args[0] into the image args[1]. */
+   public static void main(String[] args) throws IOException {
+      if (args.length != 2) {
+         System.err.println("usage: java FrontCodedLexicon wordlist image");
+         System.exit(1);
+      }
+      FrontCodedLexicon lexicon = fromWordList(new File(args[0]));
+      lexicon.write(new File(args[1]));
+      System.out.println(lexicon.size() + " words, " + lexicon.bytes.length
+            + " bytes written to " + args[1]);
+   }
+
+   private static String[] sorted(Collection<String> words) {
+      String[] sorted = words.toArray(new String[0]);
+      Arrays.sort(sorted);
+      return sorted;
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   /**
+    * Returns the exact size of the byte array and offset table.
+    */
+   @Override
+   public long footprint() {
+      return arrayBytes(bytes.length, 1)
+            + arrayBytes(offsets.length, Integer.BYTES);
+   }
+
+   private static long arrayBytes(int length, int elementBytes) {
+      long total = ARRAY_HEADER_BYTES + (long) length * elementBytes;
+      return (total + 7) & ~7L;
+   }
+
+   @Override
+   public boolean contains(CharSequence word) {
+      Probe probe = new Probe(word.length() * 3);
+      int n = encode(word, probe.key);
+      return find(probe, n, 0) < size
+            && compare(probe.word, probe.length, probe.key, n) == 0;
+   }
+
+   @Override
+   public boolean containsPrefix(CharSequence prefix) {
+      Probe probe = new Probe(prefix.length() * 3);
+      int n = encode(prefix, probe.key);
+      return find(probe, n, 0) < size && probe.startsWith(n);
+   }
+
+   @Override
+   public int root() {
+      return 0;
+   }
+
+   @Override
+   public int child(int node, char c) {
+      int index = node >>> DEPTH_BITS;
+      int depth = node & MAX_DEPTH;
+      if (index >= size) {
+         return NONE;
+      }
+      Probe probe = new Probe(depth + 3);
+      decode(index, probe);
+      System.arraycopy(probe.word, 0, probe.key, 0, depth);
+      int n = depth + encode(c, probe.key, depth);
+      if (n > MAX_DEPTH) {
+         return NONE;
+      }
+      int found = find(probe, n, index);
+      if (found == size || !probe.startsWith(n)) {
+         return NONE;
+      }
+      return found << DEPTH_BITS | n;
+   }
+
+   @Override
+   public boolean isWord(int node) {
+      int index = node >>> DEPTH_BITS;
+      if (index >= size) {
+         return false;
+      }
+      Probe probe = new Probe(0);
+      decode(index, probe);
+      return probe.length == (node & MAX_DEPTH);
+   }
+
+   @Override
+   public int walk(CharSequence s) {
+      Probe probe = new Probe(s.length() * 3);
+      int n = encode(s, probe.key);
+      if (n > MAX_DEPTH) {
+         return NONE;
+      }
+      int found = find(probe, n, 0);
+      if (found == size || !probe.startsWith(n)) {
+         return NONE;
+      }
+      return found << DEPTH_BITS | n;
+   }
+
+   /**
+    * Finds the first word at or after index from that is not less than
+    * the first n bytes of probe.key, and leaves it in probe.word. Every
+    * word before from must be less than the key.
+    *
+    * @return the word's index, or size if there is none
+    */
+   private int find(Probe probe, int n, int from) {
+      // last block whose first word is not greater than the key
+      int lo = from / BLOCK_SIZE;
+      int hi = offsets.length - 1;
+      if (lo > hi) {
+         return size;
+      }
+      while (lo < hi) {
+         int mid = (lo + hi + 1) >>> 1;
+         if (compareFirst(mid, probe.key, n) <= 0) {
+            lo = mid;
+         }
+         else {
+            hi = mid - 1;
+         }
+      }
+      int at = offsets[lo];
+      int end = lo + 1 < offsets.length ? offsets[lo + 1] : bytes.length;
+      int index = lo * BLOCK_SIZE;
+      at = readFirst(at, probe);
+      while (compare(probe.word, probe.length, probe.key, n) < 0) {
+         index++;
+         if (at == end) {
+            if (index == size) {
+               return size;
+            }
+            // the next block starts after the key
+            readFirst(at, probe);
+            return index;
+         }
+         at = readNext(at, probe);
+      }
+      return index;
+   }
+
+   /**
+    * Decodes the word at index into probe.word.
+    */
+   private void decode(int index, Probe probe) {
+      int block = index / BLOCK_SIZE;
+      int at = readFirst(offsets[block], probe);
+      for (int i = block * BLOCK_SIZE; i < index; i++) {
+         at = readNext(at, probe);
+      }
+   }
+
+   private int readFirst(int at, Probe probe) {
+      int n = 0;
+      int shift = 0;
+      byte b;
+      do {
+         b = bytes[at++];
+         n |= (b & 0x7F) << shift;
+         shift += 7;
+      } while (b < 0);
+      probe.fit(n);
+      System.arraycopy(bytes, at, probe.word, 0, n);
+      probe.length = n;
+      return at + n;
+   }
+
+   private int readNext(int at, Probe probe) {
+      int shared = 0;
+      int shift = 0;
+      byte b;
+      do {
+         b = bytes[at++];
+         shared |= (b & 0x7F) << shift;
+         shift += 7;
+      } while (b < 0);
+      int n = 0;
+      shift = 0;
+      do {
+         b = bytes[at++];
+         n |= (b & 0x7F) << shift;
+         shift += 7;
+      } while (b < 0);
+      probe.fit(shared + n);
+      System.arraycopy(bytes, at, probe.word, shared, n);
+      probe.length = shared + n;
+      return at + n;
+   }
+
+   /**
+    * Compares the first word of a block with a key without copying it.
+    */
+   private int compareFirst(int block, byte[] key, int n) {
+      int at = offsets[block];
+      int length = 0;
+      int shift = 0;
+      byte b;
+      do {
+         b = bytes[at++];
+         length |= (b & 0x7F) << shift;
+         shift += 7;
+      } while (b < 0);
+      int limit = Math.min(length, n);
+      for (int i = 0; i < limit; i++) {
+         int d = (bytes[at + i] & 0xFF) - (key[i] & 0xFF);
+         if (d != 0) {
+            return d;
+         }
+      }
+      return length - n;
+   }
+
+   private static int compare(byte[] a, int aLength, byte[] b, int bLength) {
+      int limit = Math.min(aLength, bLength);
+      for (int i = 0; i < limit; i++) {
+         int d = (a[i] & 0xFF) - (b[i] & 0xFF);
+         if (d != 0) {
+            return d;
+         }
+      }
+      return aLength - bLength;
+   }
+
+   private static int writeInt(byte[] out, int at, int value) {
+      while (value >= 0x80) {
+         out[at++] = (byte) (value | 0x80);
+         value >>>= 7;
+      }
+      out[at++] = (byte) value;
+      return at;
+   }
+
+   private static int encode(CharSequence s, byte[] out) {
+      int n = 0;
+      for (int i = 0; i < s.length(); i++) {
+         n += encode(s.charAt(i), out, n);
+      }
+      return n;
+   }
+
+   private static int encode(char c, byte[] out, int at) {
+      if (c < 0x80) {
+         out[at] = (byte) c;
+         return 1;
+      }
+      if (c < 0x800) {
+         out[at] = (byte) (0xC0 | c >> 6);
+         out[at + 1] = (byte) (0x80 | c & 0x3F);
+         return 2;
+      }
+      out[at] = (byte) (0xE0 | c >> 12);
+      out[at + 1] = (byte) (0x80 | c >> 6 & 0x3F);
+      out[at + 2] = (byte) (0x80 | c & 0x3F);
+      return 3;
+   }
+
+   /**
+    * Holds the key being looked up and the word last decoded. One is made
+    * per query, so the lexicon can be shared between threads.
+    */
+   private final class Probe {
+      private final byte[] key;
+      private byte[] word;
+      private int length;
+
+      Probe(int keyBytes) {
+         key = new byte[keyBytes];
+         word = new byte[longest];
+      }
+
+      void fit(int n) {
+         if (word.length < n) {
+            word = new byte[n];
+         }
+      }
+
+      boolean startsWith(int n) {
+         return length >= n && compare(word, n, key, n) == 0;
+      }
+   }
+}
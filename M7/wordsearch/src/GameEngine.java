@@ -1,20 +1,73 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
 import java.util.LinkedList;
 import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.TreeSet;
-import java.util.Scanner;
 import java.util.Iterator;
-import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 
 public class GameEngine implements WordSearchGame {
-   private TreeSet<String> wordList;
+   // orders words from lowest to highest score, and equal scores from last
+   // to first alphabetically
+   private static final Comparator<String> WORST_FIRST =
+         Comparator.comparingInt(String::length)
+               .thenComparing(Comparator.<String>reverseOrder());
+   
+   private static final SolverStats STATS = SolverStats.get();
+   
+   // characters below this are counted when checking a word against the
+   // letters on the board
+   private static final int COUNTED_CHARS = 128;
+   
+   private final LexiconCache lexicons;
+   private final SolutionCache solutions;
+   private Lexicon lexicon;
    private String[][] board;
    private int size;
-   private SortedSet<String> allWords;
+   private BoardSolver solver;
+   private Solution solution;
+   private int[] boardCounts;
+   private int[] wordCounts;
    
    public GameEngine() {
-      wordList = null;
+      this(WordSearchGameFactory.lexiconCache());
+   }
+   
+   /**
+    * Creates an engine that loads its lexicons through the given cache and
+    * shares solved boards through the process-wide solution cache.
+    */
+   GameEngine(LexiconCache lexiconCache) {
+      this(lexiconCache, SolutionCache.shared());
+   }
+   
+   /**
+    * Creates an engine that loads its lexicons and looks up solved boards
+    * through the given caches.
+    */
+   GameEngine(LexiconCache lexiconCache, SolutionCache solutionCache) {
+      lexicons = lexiconCache;
+      solutions = solutionCache;
+      lexicon = null;
       size = 4;
       board = new String[size][size];
       board[0][0] = "E";
@@ -41,16 +94,30 @@ public class GameEngine implements WordSearchGame {
          throw new IllegalArgumentException();
       }
       try {
-         wordList = new TreeSet<String>();
-         Scanner file = new Scanner(new File(fileName));
-         while (file.hasNext()) {
-            wordList.add(file.next().toUpperCase());
-         }
-         file.close();
+         Lexicon loaded = lexicons.acquire(fileName);
+         close();
+         lexicon = loaded;
       }
       catch (FileNotFoundException e) {
          throw new IllegalArgumentException();
       }
+      catch (IOException e) {
+         throw new IllegalArgumentException(e);
+      }
+   }
+   
+   /**
+    * Gives the current lexicon back to the shared cache. The engine needs
+    * another call to loadLexicon before it can be used again.
+    */
+   @Override
+   public void close() {
+      if (lexicon != null) {
+         lexicons.release(lexicon);
+         lexicon = null;
+         solver = null;
+         solution = null;
+      }
    }
    
    @Override
@@ -71,6 +138,53 @@ public class GameEngine implements WordSearchGame {
          }
       }
       size = (int) boardSize;
+      solver = null;
+      solution = null;
+      boardCounts = null;
+   }
+   
+   /**
+    * Replaces the contents of one board position. If the board has already
+    * been solved, the solution is updated by searching only the paths that
+    * pass through the position and rechecking the words that used it.
+    *
+    * @param index the position, numbered in row-major order as in isOnBoard
+    * @param tile the new contents, which may be longer than one character
+    * @throws IllegalArgumentException if tile is null or index is not a
+    *     position on the board
+    */
+   public void setCell(int index, String tile) {
+      if (tile == null || index < 0 || index >= size * size) {
+         throw new IllegalArgumentException();
+      }
+      board[index / size][index % size] = tile;
+      solver = null;
+      boardCounts = null;
+      if (solution != null) {
+         solution = solution.withCellChanged(solver(), index);
+         STATS.record(solver);
+      }
+   }
+   
+   /**
+    * Returns the solution remembered for the current board, or null if the
+    * board has not been solved. Solutions are immutable, so one can be
+    * handed back to restore() after trying out changes.
+    */
+   Solution remembered() {
+      return solution;
+   }
+   
+   /**
+    * Puts back a board together with the solution remembered for it, as
+    * returned by remembered() while the board was current.
+    *
+    * @param cells the board in row-major order
+    * @param remembered its solution, or null
+    */
+   void restore(String[] cells, Solution remembered) {
+      setBoard(cells);
+      solution = remembered;
    }
    
    @Override
@@ -91,47 +205,346 @@ public class GameEngine implements WordSearchGame {
       if (minimumWordLength < 1) {
          throw new IllegalArgumentException();
       }
-      if (wordList == null) {
+      if (lexicon == null) {
          throw new IllegalStateException();
       }
       
-      allWords = new TreeSet<String>();
-      LinkedList<Integer> wordProg = new LinkedList<Integer>();
-      for (int i = 0; i < (size * size); i++) {
-         wordProg.add(i);
-         if (isValidWord(toWord(wordProg))
-               && toWord(wordProg).length() >= minimumWordLength) {
-            allWords.add(toWord(wordProg));
+      boolean timed = SolverStats.collecting();
+      long started = timed ? System.nanoTime() : 0;
+      SortedSet<String> words =
+            solution(minimumWordLength).words(minimumWordLength);
+      if (timed) {
+         STATS.record(SolverStats.Call.SOLVE, System.nanoTime() - started);
+      }
+      return words;
+   }
+   
+   /**
+    * Returns the solution for the current board, solving it only if no
+    * remembered solution lists words as short as minimumWordLength and no
+    * other engine has solved the same board recently.
+    */
+   private Solution solution(int minimumWordLength) {
+      if (solution == null || !solution.covers(minimumWordLength)) {
+         String[] cells = cells();
+         Solution cached = solutions.get(cells, lexicon, minimumWordLength);
+         if (cached == null) {
+            cached = Solution.solve(solver(), minimumWordLength);
+            STATS.record(solver);
+            solutions.put(cells, lexicon, cached);
          }
-         if (isValidPrefix(toWord(wordProg))) {
-            wordBoardSearch(wordProg, minimumWordLength);
+         solution = cached;
+      }
+      return solution;
+   }
+   
+   /**
+    * Solves the board if needed and returns an unchanging snapshot of it
+    * that many threads can score, validate and search at once without
+    * locking. Later changes to this engine do not affect the snapshot.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @return a thread-safe snapshot of the solved board
+    * @throws IllegalArgumentException if minimumWordLength < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public SolvedBoard snapshot(int minimumWordLength) {
+      if (minimumWordLength < 1) {
+         throw new IllegalArgumentException();
+      }
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      return new SolvedBoard(cells(), lexicon, solution(minimumWordLength),
+            minimumWordLength);
+   }
+   
+   /**
+    * Returns the score of every scorable word on the board. This equals
+    * getScoreForWords(getAllScorableWords(minimumWordLength),
+    * minimumWordLength) but builds no word set, and like
+    * getAllScorableWords it solves the board only if needed, so it stays
+    * cheap across calls to setCell.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @return the total score of the board
+    * @throws IllegalArgumentException if minimumWordLength < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public int getTotalScore(int minimumWordLength) {
+      if (minimumWordLength < 1) {
+         throw new IllegalArgumentException();
+      }
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      return solution(minimumWordLength).score(minimumWordLength);
+   }
+   
+   /**
+    * Retrieves the scorable words on the game board, giving up when either
+    * budget runs out. Starting cells are searched in order of how few
+    * neighbors continue a prefix from them, since narrow searches find the
+    * most score per step, so a search cut short tends to have found more of
+    * the board's score than one that went row by row. It need not have
+    * found the longest words. Budgets are checked every few thousand search
+    * steps, so either may be overrun by that much. If the board has already
+    * been solved the remembered words are returned at once.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @param timeout the most time to spend, or Long.MAX_VALUE for no limit
+    * @param unit the unit of timeout
+    * @param maxNodes the most cells to expand, or Long.MAX_VALUE for no limit
+    * @return the words found, whether the search finished, and its statistics
+    * @throws IllegalArgumentException if minimumWordLength < 1, timeout < 0,
+    *     unit is null, or maxNodes < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public SearchResult getAllScorableWords(int minimumWordLength, long timeout,
+                                           TimeUnit unit, long maxNodes) {
+      if (minimumWordLength < 1 || timeout < 0 || unit == null
+            || maxNodes < 1) {
+         throw new IllegalArgumentException();
+      }
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      
+      long started = System.nanoTime();
+      if (solution != null && solution.covers(minimumWordLength)) {
+         return new SearchResult(solution.words(minimumWordLength), true, 0,
+               0, size * size, size * size, System.nanoTime() - started);
+      }
+      long budget = timeout == Long.MAX_VALUE ? Long.MAX_VALUE
+            : unit.toNanos(timeout);
+      Set<String> words = new HashSet<String>();
+      BoardSolver search = new BoardSolver(lexicon, cells());
+      search.startBestFirst(minimumWordLength);
+      search.stopWhen(() -> search.expanded() >= maxNodes
+            || System.nanoTime() - started >= budget);
+      while (search.next()) {
+         words.add(search.word());
+      }
+      SearchResult result = new SearchResult(new TreeSet<String>(words),
+            !search.stopped(), search.expanded(), search.pruned(),
+            search.startsDone(), search.cellCount(),
+            System.nanoTime() - started);
+      STATS.record(search);
+      return result;
+   }
+   
+   /**
+    * Passes each scorable word to an action as soon as it is found on the
+    * board. Each word is passed once, in no particular order.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @param action receives the words; returning false stops the search
+    * @return true if the whole board was searched, false if action stopped it
+    * @throws IllegalArgumentException if minimumWordLength < 1 or action is
+    *     null
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public boolean forEachScorableWord(int minimumWordLength,
+                                      Predicate<? super String> action) {
+      if (minimumWordLength < 1 || action == null) {
+         throw new IllegalArgumentException();
+      }
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      
+      Set<String> seen = new HashSet<String>();
+      BoardSolver search = new BoardSolver(lexicon, cells());
+      search.start(0, search.cellCount(), minimumWordLength);
+      try {
+         while (search.next()) {
+            String word = search.word();
+            if (seen.add(word) && !action.test(word)) {
+               return false;
+            }
          }
-         wordProg.clear();
+         return true;
+      }
+      finally {
+         STATS.record(search);
       }
-      return allWords;
    }
    
-   private LinkedList<Integer> wordBoardSearch(LinkedList<Integer> wordProg,
-                                               int min) {
-      Position[] adjArray = new Position(wordProg.getLast()).adjacent(wordProg);
-      for (Position p : adjArray) {
-         if (p == null) {
-            break;
+   /**
+    * Returns the scorable words as a lazy stream. The board is searched only
+    * as far as the stream is consumed, so short-circuiting operations such
+    * as limit or findFirst end the search early. The stream sees the board
+    * as it was when this method was called. The search's statistics are
+    * recorded when the stream runs out of words or is closed.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @return a stream of distinct scorable words, in no particular order
+    * @throws IllegalArgumentException if minimumWordLength < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public Stream<String> streamScorableWords(int minimumWordLength) {
+      if (minimumWordLength < 1) {
+         throw new IllegalArgumentException();
+      }
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      
+      BoardSolver search = new BoardSolver(lexicon, cells());
+      search.start(0, search.cellCount(), minimumWordLength);
+      Set<String> seen = new HashSet<String>();
+      AtomicBoolean recorded = new AtomicBoolean();
+      Runnable record = () -> {
+         if (recorded.compareAndSet(false, true)) {
+            STATS.record(search);
+         }
+      };
+      Spliterator<String> words = new Spliterators.AbstractSpliterator<String>(
+            Long.MAX_VALUE, Spliterator.DISTINCT | Spliterator.NONNULL) {
+         @Override
+         public boolean tryAdvance(Consumer<? super String> action) {
+            while (search.next()) {
+               String word = search.word();
+               if (seen.add(word)) {
+                  action.accept(word);
+                  return true;
+               }
+            }
+            record.run();
+            return false;
+         }
+      };
+      return StreamSupport.stream(words, false).onClose(record);
+   }
+   
+   /**
+    * Returns the k highest-scoring words on the board, best first. Longer
+    * words score higher; words of equal length are in ascending order.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @param k the number of words wanted
+    * @return at most k words
+    * @throws IllegalArgumentException if minimumWordLength < 1 or k < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public List<String> getTopScorableWords(int minimumWordLength, int k) {
+      return getTopScorableWords(minimumWordLength, k, null);
+   }
+   
+   /**
+    * Returns the k highest-scoring words on the board, best first. Once k
+    * words are held, branches that cannot spell a word at least as long as
+    * the k-th are skipped. If cancelled becomes true the best words found so
+    * far are returned.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @param k the number of words wanted
+    * @param cancelled polled during the search, or null
+    * @return at most k words
+    * @throws IllegalArgumentException if minimumWordLength < 1 or k < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public List<String> getTopScorableWords(int minimumWordLength, int k,
+                                           BooleanSupplier cancelled) {
+      if (minimumWordLength < 1 || k < 1) {
+         throw new IllegalArgumentException();
+      }
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      
+      PriorityQueue<String> best = new PriorityQueue<String>(k, WORST_FIRST);
+      Set<String> kept = new HashSet<String>();
+      BoardSolver search = new BoardSolver(lexicon, cells());
+      search.start(0, search.cellCount(), minimumWordLength);
+      search.stopWhen(cancelled);
+      while (search.next()) {
+         if (best.size() == k && search.length() < best.peek().length()) {
+            continue;
+         }
+         String word = search.word();
+         if (kept.contains(word)) {
+            continue;
          }
-         wordProg.add(p.getIndex());
-         if (isValidPrefix(toWord(wordProg))) {
-            if (isValidWord(toWord(wordProg))
-                  && toWord(wordProg).length() >= min) {
-               allWords.add(toWord(wordProg));
+         if (best.size() == k) {
+            if (WORST_FIRST.compare(word, best.peek()) < 0) {
+               continue;
             }
-            wordBoardSearch(wordProg, min);
+            kept.remove(best.poll());
          }
-         else {
-            wordProg.removeLast();
+         best.add(word);
+         kept.add(word);
+         if (best.size() == k) {
+            search.skipShorterThan(best.peek().length());
          }
       }
-      wordProg.removeLast();
-      return wordProg;
+      STATS.record(search);
+      List<String> top = new ArrayList<String>(best);
+      top.sort(WORST_FIRST.reversed());
+      return top;
+   }
+   
+   /**
+    * Retrieves all scorable words on the game board, splitting the starting
+    * cells across the common fork/join pool.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @return the words of minimum length found on the board and in the lexicon
+    * @throws IllegalArgumentException if minimumWordLength < 1
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public SortedSet<String> getAllScorableWordsParallel(int minimumWordLength) {
+      return getAllScorableWordsParallel(minimumWordLength,
+            ForkJoinPool.commonPool());
+   }
+   
+   /**
+    * Retrieves all scorable words on the game board, splitting the starting
+    * cells across the given pool. Each task searches with its own solver and
+    * buffer, so calls on the same engine do not share search state.
+    *
+    * @param minimumWordLength The minimum allowed length for any word found
+    * @param pool the pool to run the search in
+    * @return the words of minimum length found on the board and in the lexicon
+    * @throws IllegalArgumentException if minimumWordLength < 1 or pool is null
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   public SortedSet<String> getAllScorableWordsParallel(int minimumWordLength,
+                                                        ForkJoinPool pool) {
+      if (minimumWordLength < 1 || pool == null) {
+         throw new IllegalArgumentException();
+      }
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      
+      String[] cells = cells();
+      int grain = Math.max(1, cells.length / (pool.getParallelism() * 8));
+      List<String> found = pool.invoke(new StartCellTask(lexicon, cells,
+            0, cells.length, grain, minimumWordLength));
+      return new TreeSet<String>(found);
+   }
+   
+   /**
+    * Returns the solver for the current board and lexicon, creating it the
+    * first time it is needed after either one changes.
+    */
+   private BoardSolver solver() {
+      if (solver == null) {
+         solver = new BoardSolver(lexicon, cells());
+      }
+      return solver;
+   }
+   
+   /**
+    * Returns the board in row-major order.
+    */
+   private String[] cells() {
+      String[] cells = new String[size * size];
+      for (int i = 0; i < cells.length; i++) {
+         cells[i] = board[i / size][i % size];
+      }
+      return cells;
    }
    
    @Override
@@ -139,29 +552,112 @@ public class GameEngine implements WordSearchGame {
       if (minimumWordLength < 1) {
          throw new IllegalArgumentException();
       }
-      if (wordList == null) {
+      if (lexicon == null) {
          throw new IllegalStateException();
       }
-      int score = 0;
+      boolean timed = SolverStats.collecting();
+      long started = timed ? System.nanoTime() : 0;
+      Set<String> candidates = new HashSet<String>();
       for (String word : words) {
-         if (word.length() >= minimumWordLength && isValidWord(word)
-               && !isOnBoard(word).isEmpty()) {
-            score += (word.length() - minimumWordLength) + 1;
+         if (word.length() >= minimumWordLength && isValidWord(word)) {
+            candidates.add(word);
          }
       }
+      Set<String> onBoard;
+      if (solution != null && solution.covers(minimumWordLength)) {
+         onBoard = candidates;
+         onBoard.removeIf(word -> !solution.contains(word));
+      }
+      else {
+         onBoard = searchAll(candidates).keySet();
+      }
+      int score = 0;
+      for (String word : onBoard) {
+         score += (word.length() - minimumWordLength) + 1;
+      }
+      if (timed) {
+         STATS.record(SolverStats.Call.SCORE, System.nanoTime() - started);
+      }
       return score;
    }
    
+   /**
+    * Determines if the board holds enough copies of every character in a
+    * word to spell it, ignoring adjacency. A word that fails this cannot be
+    * on the board, so it needs no search. Characters from COUNTED_CHARS up
+    * are not checked.
+    */
+   private boolean fitsBoard(String word) {
+      if (boardCounts == null) {
+         boardCounts = new int[COUNTED_CHARS];
+         wordCounts = new int[COUNTED_CHARS];
+         for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+               for (char c : board[i][j].toCharArray()) {
+                  if (c < COUNTED_CHARS) {
+                     boardCounts[c]++;
+                  }
+               }
+            }
+         }
+      }
+      boolean fits = true;
+      int i = 0;
+      for (; i < word.length() && fits; i++) {
+         char c = word.charAt(i);
+         if (c < COUNTED_CHARS && ++wordCounts[c] > boardCounts[c]) {
+            fits = false;
+         }
+      }
+      // clear only the counts this word touched
+      for (int j = 0; j < i; j++) {
+         char c = word.charAt(j);
+         if (c < COUNTED_CHARS) {
+            wordCounts[c] = 0;
+         }
+      }
+      return fits;
+   }
+   
+   /**
+    * Looks for many words in one traversal of the board by treating the
+    * words as a lexicon of their own.
+    *
+    * @return the words found, each with the first path that spells it
+    */
+   private Map<String, int[]> searchAll(Collection<String> words) {
+      Map<String, int[]> found = new HashMap<String, int[]>();
+      List<String> possible = new ArrayList<String>();
+      for (String word : words) {
+         if (fitsBoard(word)) {
+            possible.add(word);
+         }
+      }
+      if (possible.isEmpty()) {
+         return found;
+      }
+      BoardSolver search = new BoardSolver(new TrieLexicon(possible), cells());
+      search.start(0, search.cellCount(), 1);
+      while (search.next()) {
+         String word = search.word();
+         if (!found.containsKey(word)) {
+            found.put(word, search.path());
+         }
+      }
+      STATS.record(search);
+      return found;
+   }
+   
    @Override
    public boolean isValidWord(String wordToCheck) {
       if (wordToCheck == null) {
          throw new IllegalArgumentException();
       }
-      if (wordList == null) {
+      if (lexicon == null) {
          throw new IllegalStateException();
       }
       
-      return wordList.contains(wordToCheck);
+      return lexicon.contains(wordToCheck);
    }
    
    @Override
@@ -169,14 +665,10 @@ public class GameEngine implements WordSearchGame {
       if (prefixToCheck == null) {
          throw new IllegalArgumentException();
       }
-      if (wordList == null) {
+      if (lexicon == null) {
          throw new IllegalStateException();
       }
-      String aux = wordList.ceiling(prefixToCheck);
-      if (aux != null) {
-         return aux.startsWith(prefixToCheck);
-      }
-      return false;
+      return lexicon.containsPrefix(prefixToCheck);
    }
    
    @Override
@@ -184,125 +676,137 @@ public class GameEngine implements WordSearchGame {
       if (wordToCheck == null) {
          throw new IllegalArgumentException();
       }
-      if (wordList == null) {
+      if (lexicon == null) {
          throw new IllegalStateException();
       }
-      LinkedList<Integer> auxList = new LinkedList<Integer>();
-      List<Integer> wordPath = boardSearch(wordToCheck, auxList, 0);
+      boolean timed = SolverStats.collecting();
+      long started = timed ? System.nanoTime() : 0;
+      int[] path = findPath(wordToCheck);
+      List<Integer> wordPath =
+            path == null ? new LinkedList<Integer>() : pathList(path);
+      if (timed) {
+         STATS.record(SolverStats.Call.IS_ON_BOARD,
+               System.nanoTime() - started);
+      }
       return wordPath;
    }
    
-   private LinkedList<Integer> boardSearch(String wordToCheck,
-                                           LinkedList<Integer> listProg, int posIndex) {
-      if (listProg.size() > 0 && !wordToCheck.equals(toWord(listProg))) {
-         Position[] adjArray =
-               new Position(posIndex).adjacent(listProg);
-         for (Position p : adjArray) {
-            if (p == null) {
-               break;
-            }
-            listProg.add(p.getIndex());
-            if (wordToCheck.equals(toWord(listProg))) {
-               break;
-            }
-            if (wordToCheck.startsWith(toWord(listProg))) {
-               boardSearch(wordToCheck, listProg, p.getIndex());
-            }
-            else {
-               listProg.removeLast();
-            }
+   /**
+    * Finds one word on the board, from the remembered solution if it covers
+    * the word and otherwise by searching for it alone.
+    *
+    * @return the cells spelling the word, or null if it is not on the board
+    */
+   private int[] findPath(String word) {
+      if (solution != null && solution.covers(word.length())
+            && lexicon.contains(word)) {
+         return solution.path(word);
+      }
+      if (!fitsBoard(word)) {
+         return null;
+      }
+      int[] path = solver().find(word);
+      STATS.record(solver);
+      return path;
+   }
+   
+   /**
+    * Finds the words on the board. Once the board has been solved each
+    * word is looked up as isOnBoard would, so words the solution covers
+    * need no search and the few it does not are searched for alone.
+    * Otherwise all of the words are searched for together in one traversal
+    * of the board.
+    */
+   @Override
+   public Map<String, List<Integer>> getPathsOnBoard(
+         Collection<String> wordsToCheck) {
+      if (wordsToCheck == null) {
+         throw new IllegalArgumentException();
+      }
+      for (String word : wordsToCheck) {
+         if (word == null) {
+            throw new IllegalArgumentException();
          }
       }
-      if (listProg.size() == 0) {
-         while (posIndex < (size * size)) {
-            if (wordToCheck.startsWith(new Position(posIndex).getLetter())) {
-               listProg.add(posIndex);
-               boardSearch(wordToCheck, listProg, posIndex);
+      if (lexicon == null) {
+         throw new IllegalStateException();
+      }
+      Map<String, List<Integer>> paths = new HashMap<String, List<Integer>>();
+      if (solution != null) {
+         for (String word : wordsToCheck) {
+            int[] path = findPath(word);
+            if (path != null) {
+               paths.put(word, pathList(path));
             }
-            posIndex++;
          }
-         return listProg;
+         return paths;
       }
-      if (toWord(listProg).equals(wordToCheck)) {
-         return listProg;
-      }
-      else {
-         listProg.removeLast();
-         return listProg;
+      for (Map.Entry<String, int[]> found : searchAll(wordsToCheck).entrySet()) {
+         paths.put(found.getKey(), pathList(found.getValue()));
       }
+      return paths;
    }
    
-   public String toWord(LinkedList<Integer> listIn) {
-      String word = "";
-      for (int i : listIn) {
-         word += new Position(i).getLetter();
+   private static List<Integer> pathList(int[] path) {
+      List<Integer> wordPath = new LinkedList<Integer>();
+      for (int i : path) {
+         wordPath.add(i);
       }
-      return word;
+      return wordPath;
    }
    
-   private class Position {
-      private int x;
-      private int y;
-      private int index;
-      private String letter;
-      private static final int MAX_ADJ = 8;
+   /**
+    * Searches a range of starting cells, halving the range until it is no
+    * larger than the grain and then solving it with a private solver.
+    */
+   private static class StartCellTask extends RecursiveTask<List<String>> {
+      private static final long serialVersionUID = 1L;
       
-      Position(int indexIn) {
-         this.index = indexIn;
-         if (index == 0) {
-            this.x = 0;
-            this.y = 0;
-         }
-         else {
-            this.x = index % size;
-            this.y = index / size;
-         }
-         this.letter = board[y][x];
-      }
+      private final Lexicon lexicon;
+      private final String[] cells;
+      private final int from;
+      private final int to;
+      private final int grain;
+      private final int min;
       
-      Position(int xIn, int yIn) {
-         this.x = xIn;
-         this.y = yIn;
-         this.index = (y * size) + x;
-         this.letter = board[y][x];
+      StartCellTask(Lexicon lexicon, String[] cells, int from, int to,
+                    int grain, int min) {
+         this.lexicon = lexicon;
+         this.cells = cells;
+         this.from = from;
+         this.to = to;
+         this.grain = grain;
+         this.min = min;
       }
       
-      public Position[] adjacent(LinkedList<Integer> visited) {
-         Position[] adj = new Position[MAX_ADJ];
-         int k = 0;
-         for (int i = this.x - 1; i <= this.x + 1; i++) {
-            for (int j = this.y - 1; j <= this.y + 1; j++) {
-               if (!(i == this.x && j == this.y)) {
-                  if (isValid(i, j) && !visited.contains((j * size) + i)) {
-                     Position aux = new Position(i, j);
-                     adj[k++] = aux;
-                  }
-               }
+      @Override
+      protected List<String> compute() {
+         if (to - from <= grain) {
+            List<String> found = new ArrayList<String>();
+            BoardSolver search = new BoardSolver(lexicon, cells);
+            search.start(from, to, min);
+            while (search.next()) {
+               found.add(search.word());
             }
+            STATS.record(search);
+            return found;
          }
-         return adj;
+         int mid = (from + to) >>> 1;
+         StartCellTask left =
+               new StartCellTask(lexicon, cells, from, mid, grain, min);
+         left.fork();
+         List<String> found =
+               new StartCellTask(lexicon, cells, mid, to, grain, min).compute();
+         found.addAll(left.join());
+         return found;
       }
-      
-      public boolean isValid(int xTest, int yTest) {
-         return xTest >= 0 && xTest < size && yTest >= 0 && yTest < size;
-      }
-      
-      /**
-       * Get position letter.
-       *
-       * @return letter
-       */
-      public String getLetter() {
-         return letter;
-      }
-      
-      /**
-       * Get position index.
-       *
-       * @return index
-       */
-      public int getIndex() {
-         return index;
+   }
+   
+   public String toWord(LinkedList<Integer> listIn) {
+      StringBuilder word = new StringBuilder();
+      for (int i : listIn) {
+         word.append(board[i / size][i % size]);
       }
+      return word.toString();
    }
-}
\ No newline at end of file
+}
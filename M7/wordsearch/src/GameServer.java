@@ -0,0 +1,538 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameServer.java
+ * Serves word search game sessions over HTTP with JSON bodies.
+ *
+ * Each session owns a GameEngine, and every engine shares the lexicon the
+ * server was started with. Requests run one thread each, on virtual threads
+ * when the JDK has them and otherwise on a fixed pool. At most maxInFlight
+ * requests are worked on at once; any more are turned away with 503 rather
+ * than queued, so latency stays bounded under overload.
+ *
+ *      POST   /sessions                       {"session":"id"}
+ *      DELETE /sessions/{id}
+ *      PUT    /sessions/{id}/board            body {"board":["A","B",...]}
+ *      GET    /sessions/{id}/solve?min=3      {"count":n,"words":[...]}
+ *      POST   /sessions/{id}/score            body {"words":[...],"min":3}
+ *      GET    /sessions/{id}/onboard?word=W   {"path":[...]}
+ *      GET    /stats
+ *
+ *      java GameServer Wordlist.txt [port] [maxInFlight] [maxSessions]
+ */
+public class GameServer {
+
+   /** The operations the server times separately. */
+   public enum Endpoint {
+      CREATE, CLOSE, BOARD, SOLVE, SCORE, ON_BOARD, STATS
+   }
+
+   private static final int DEFAULT_PORT = 8080;
+   private static final int DEFAULT_MAX_SESSIONS = 10_000;
+   private static final int DEFAULT_MINIMUM_LENGTH = 3;
+
+   // largest request body read, in bytes
+   private static final int MAX_BODY = 64 * 1024;
+
+   /** Drives execution. */
+   public static void main(String[] args) throws IOException {
+      if (args.length < 1) {
+         System.err.println("usage: java GameServer wordlist [port]"
+               + " [maxInFlight] [maxSessions]");
+         System.exit(1);
+      }
+      int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+      int maxInFlight = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors() * 4;
+      int maxSessions = args.length > 3 ? Integer.parseInt(args[3])
+            : DEFAULT_MAX_SESSIONS;
+
+      GameServer server =
+            new GameServer(args[0], port, maxInFlight, maxSessions);
+      server.start();
+      System.err.println("serving on port " + server.port() + " with "
+            + (server.virtualThreads ? "virtual" : "pooled") + " threads");
+   }
+
+   private final String lexiconFile;
+   private final int maxInFlight;
+   private final int maxSessions;
+   private final LexiconCache lexicons = new LexiconCache();
+   private final Map<String, Session> sessions =
+         new ConcurrentHashMap<String, Session>();
+   private final AtomicLong nextId = new AtomicLong();
+   private final AtomicInteger sessionCount = new AtomicInteger();
+   private final Semaphore admission;
+   private final AtomicLong rejected = new AtomicLong();
+   private final Map<Endpoint, LatencyHistogram> latency =
+         new EnumMap<Endpoint, LatencyHistogram>(Endpoint.class);
+   private final HttpServer http;
+   private final ExecutorService executor;
+   private final boolean virtualThreads;
+   private Lexicon pinned;
+
+   /**
+    * Creates a server. It does not accept requests until start is called.
+    *
+    * @param lexiconFile the word list or lexicon image every session uses
+    * @param port the port to listen on, or 0 for any free port
+    * @param maxInFlight the most requests worked on at once
+    * @param maxSessions the most sessions open at once
+    * @throws IOException if the port cannot be bound
+    */
+   public GameServer(String lexiconFile, int port, int maxInFlight,
+                     int maxSessions) throws IOException {
+      if (maxInFlight < 1 || maxSessions < 1) {
+         throw new IllegalArgumentException();
+      }
+      this.lexiconFile = lexiconFile;
+      this.maxInFlight = maxInFlight;
+      this.maxSessions = maxSessions;
+      admission = new Semaphore(maxInFlight);
+      for (Endpoint endpoint : Endpoint.values()) {
+         latency.put(endpoint, new LatencyHistogram());
+      }
+      ExecutorService virtual = virtualThreadExecutor();
+      virtualThreads = virtual != null;
+      // admitted requests hold at most maxInFlight threads, so the spare
+      // ones are always free to turn requests away and answer /stats
+      executor = virtualThreads ? virtual : Executors.newFixedThreadPool(
+            maxInFlight + Runtime.getRuntime().availableProcessors());
+      http = HttpServer.create(new InetSocketAddress(port), 0);
+      http.createContext("/", this::handle);
+      http.setExecutor(executor);
+   }
+
+   /**
+    * Returns a thread-per-task executor on virtual threads, or null if this
+    * JDK does not have them. Looked up reflectively so the server still
+    * builds and runs on JDKs before 21.
+    */
+   private static ExecutorService virtualThreadExecutor() {
+      try {
+         Method factory =
+               Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+         return (ExecutorService) factory.invoke(null);
+      }
+      catch (ReflectiveOperationException e) {
+         return null;
+      }
+   }
+
+   /**
+    * Loads the lexicon and starts accepting requests.
+    *
+    * @throws IOException if the lexicon cannot be read
+    */
+   public void start() throws IOException {
+      // keep the lexicon cached while no session holds it
+      pinned = lexicons.acquire(lexiconFile);
+      http.start();
+   }
+
+   /**
+    * Stops accepting requests, waits up to delaySeconds for requests in
+    * progress, and closes every session.
+    *
+    * @param delaySeconds how long to wait for requests in progress
+    */
+   public void stop(int delaySeconds) {
+      http.stop(delaySeconds);
+      executor.shutdown();
+      try {
+         executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      for (Session session : sessions.values()) {
+         session.close();
+      }
+      sessions.clear();
+      if (pinned != null) {
+         lexicons.release(pinned);
+         pinned = null;
+      }
+   }
+
+   /**
+    * Returns the port the server listens on.
+    *
+    * @return the bound port
+    */
+   public int port() {
+      return http.getAddress().getPort();
+   }
+
+   /**
+    * Returns the latency histogram of an endpoint. Rejected requests are
+    * not recorded.
+    *
+    * @param endpoint the endpoint of interest
+    * @return its latency histogram
+    */
+   public LatencyHistogram latency(Endpoint endpoint) {
+      return latency.get(endpoint);
+   }
+
+   /**
+    * Returns the number of requests turned away by admission control.
+    *
+    * @return number of rejected requests
+    */
+   public long rejected() {
+      return rejected.get();
+   }
+
+   private void handle(HttpExchange exchange) throws IOException {
+      try {
+         String[] path = exchange.getRequestURI().getPath().split("/");
+         if (path.length == 2 && path[1].equals("stats")) {
+            // always answered, so an overloaded server can be inspected
+            respond(exchange, Endpoint.STATS, System.nanoTime());
+            return;
+         }
+         if (!admission.tryAcquire()) {
+            rejected.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            send(exchange, 503, error("server busy"));
+            return;
+         }
+         try {
+            long started = System.nanoTime();
+            Endpoint endpoint = route(exchange.getRequestMethod(), path);
+            if (endpoint == null) {
+               send(exchange, 404, error("no such endpoint"));
+            }
+            else {
+               respond(exchange, endpoint, started);
+            }
+         }
+         finally {
+            admission.release();
+         }
+      }
+      finally {
+         exchange.close();
+      }
+   }
+
+   /**
+    * Maps a request method and path to an endpoint.
+    */
+   private static Endpoint route(String method, String[] path) {
+      if (path.length < 2 || !path[1].equals("sessions")) {
+         return null;
+      }
+      if (path.length == 2) {
+         return method.equals("POST") ? Endpoint.CREATE : null;
+      }
+      if (path.length == 3) {
+         return method.equals("DELETE") ? Endpoint.CLOSE : null;
+      }
+      if (path.length != 4) {
+         return null;
+      }
+      switch (path[3]) {
+         case "board":
+            return method.equals("PUT") || method.equals("POST")
+                  ? Endpoint.BOARD : null;
+         case "solve":
+            return method.equals("GET") ? Endpoint.SOLVE : null;
+         case "score":
+            return method.equals("POST") ? Endpoint.SCORE : null;
+         case "onboard":
+            return method.equals("GET") ? Endpoint.ON_BOARD : null;
+         default:
+            return null;
+      }
+   }
+
+   /**
+    * Runs an endpoint, sends its response and records how long it took.
+    */
+   private void respond(HttpExchange exchange, Endpoint endpoint,
+                        long started) throws IOException {
+      int status = 200;
+      String body;
+      try {
+         body = dispatch(exchange, endpoint);
+      }
+      catch (NoSuchSession e) {
+         status = 404;
+         body = error("no such session");
+      }
+      catch (IllegalArgumentException e) {
+         status = 400;
+         body = error(e.getMessage() == null ? "bad request"
+               : e.getMessage());
+      }
+      catch (IllegalStateException e) {
+         status = 503;
+         body = error(e.getMessage());
+      }
+      send(exchange, status, body);
+      latency.get(endpoint).record(System.nanoTime() - started);
+   }
+
+   private String dispatch(HttpExchange exchange, Endpoint endpoint)
+         throws IOException {
+      String[] path = exchange.getRequestURI().getPath().split("/");
+      Map<String, String> query =
+            query(exchange.getRequestURI().getRawQuery());
+      switch (endpoint) {
+         case CREATE:
+            return create();
+         case CLOSE:
+            return close(path[2]);
+         case STATS:
+            return stats();
+         default:
+      }
+      Session session = sessions.get(path[2]);
+      if (session == null) {
+         throw new NoSuchSession();
+      }
+      StringBuilder json = new StringBuilder("{");
+      // an engine is not thread-safe, so one request per session at a time
+      synchronized (session) {
+         GameEngine engine = session.engine;
+         if (engine == null) {
+            throw new NoSuchSession();
+         }
+         switch (endpoint) {
+            case BOARD:
+               engine.setBoard(strings(body(exchange), "board"));
+               json.append("\"board\":");
+               Json.quote(json, engine.getBoard());
+               break;
+            case SOLVE:
+               int min = number(query.get("min"), DEFAULT_MINIMUM_LENGTH);
+               SortedSet<String> words = engine.getAllScorableWords(min);
+               json.append("\"count\":").append(words.size());
+               json.append(",\"words\":");
+               Json.array(json, words);
+               break;
+            case SCORE:
+               Map<String, Object> request = object(body(exchange));
+               SortedSet<String> scored = new TreeSet<String>();
+               for (String word : strings(request, "words")) {
+                  scored.add(word.toUpperCase());
+               }
+               Object given = request.get("min");
+               int minimum = given instanceof Number
+                     ? ((Number) given).intValue() : DEFAULT_MINIMUM_LENGTH;
+               json.append("\"score\":")
+                     .append(engine.getScoreForWords(scored, minimum));
+               break;
+            default:
+               String word = query.get("word");
+               if (word == null) {
+                  throw new IllegalArgumentException("word is required");
+               }
+               List<Integer> found = engine.isOnBoard(word.toUpperCase());
+               json.append("\"path\":").append(found);
+         }
+      }
+      return json.append('}').toString();
+   }
+
+   private String create() {
+      if (sessionCount.incrementAndGet() > maxSessions) {
+         sessionCount.decrementAndGet();
+         throw new IllegalStateException("too many sessions");
+      }
+      GameEngine engine = new GameEngine(lexicons);
+      try {
+         engine.loadLexicon(lexiconFile);
+      }
+      catch (IOException e) {
+         sessionCount.decrementAndGet();
+         throw new IllegalStateException("lexicon unavailable");
+      }
+      String id = Long.toString(nextId.incrementAndGet(), 36);
+      sessions.put(id, new Session(engine));
+      StringBuilder json = new StringBuilder("{\"session\":");
+      return Json.quote(json, id).append('}').toString();
+   }
+
+   private String close(String id) {
+      Session session = sessions.remove(id);
+      if (session == null) {
+         throw new NoSuchSession();
+      }
+      session.close();
+      sessionCount.decrementAndGet();
+      return "{}";
+   }
+
+   private String stats() {
+      StringBuilder json = new StringBuilder("{");
+      json.append("\"sessions\":").append(sessionCount.get());
+      json.append(",\"inFlight\":")
+            .append(maxInFlight - admission.availablePermits());
+      json.append(",\"rejected\":").append(rejected.get());
+      json.append(",\"virtualThreads\":").append(virtualThreads);
+      json.append(",\"latency\":{");
+      boolean first = true;
+      for (Map.Entry<Endpoint, LatencyHistogram> entry : latency.entrySet()) {
+         LatencyHistogram histogram = entry.getValue();
+         if (!first) {
+            json.append(',');
+         }
+         first = false;
+         Json.quote(json, entry.getKey().name().toLowerCase());
+         json.append(":{\"count\":").append(histogram.count());
+         json.append(",\"meanMicros\":")
+               .append((long) histogram.mean() / 1000);
+         json.append(",\"p50Micros\":")
+               .append(histogram.percentile(0.50) / 1000);
+         json.append(",\"p99Micros\":")
+               .append(histogram.percentile(0.99) / 1000);
+         json.append(",\"maxMicros\":").append(histogram.max() / 1000);
+         json.append('}');
+      }
+      return json.append("}}").toString();
+   }
+
+   private static String error(String message) {
+      StringBuilder json = new StringBuilder("{\"error\":");
+      return Json.quote(json, message).append('}').toString();
+   }
+
+   private static void send(HttpExchange exchange, int status, String body)
+         throws IOException {
+      byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders()
+            .set("Content-Type", "application/json; charset=utf-8");
+      exchange.sendResponseHeaders(status, bytes.length);
+      OutputStream out = exchange.getResponseBody();
+      out.write(bytes);
+      out.close();
+   }
+
+   /**
+    * Reads a request body as a JSON object.
+    */
+   private static Map<String, Object> body(HttpExchange exchange)
+         throws IOException {
+      InputStream in = exchange.getRequestBody();
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      byte[] chunk = new byte[4096];
+      int n;
+      while ((n = in.read(chunk)) > 0) {
+         bytes.write(chunk, 0, n);
+         if (bytes.size() > MAX_BODY) {
+            throw new IllegalArgumentException("request body too large");
+         }
+      }
+      return object(bytes.toString(StandardCharsets.UTF_8.name()));
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, Object> object(Object value) {
+      if (value instanceof String) {
+         value = Json.parse((String) value);
+      }
+      if (!(value instanceof Map)) {
+         throw new IllegalArgumentException("expected a JSON object");
+      }
+      return (Map<String, Object>) value;
+   }
+
+   /**
+    * Returns a member of a request object that must be an array of strings.
+    */
+   private static String[] strings(Map<String, Object> request, String name) {
+      Object value = request.get(name);
+      if (!(value instanceof List)) {
+         throw new IllegalArgumentException(name + " must be an array");
+      }
+      List<?> list = (List<?>) value;
+      String[] strings = new String[list.size()];
+      for (int i = 0; i < strings.length; i++) {
+         if (!(list.get(i) instanceof String)) {
+            throw new IllegalArgumentException(name + " must hold strings");
+         }
+         strings[i] = ((String) list.get(i)).toUpperCase();
+      }
+      return strings;
+   }
+
+   private static int number(String value, int otherwise) {
+      if (value == null) {
+         return otherwise;
+      }
+      try {
+         return Integer.parseInt(value);
+      }
+      catch (NumberFormatException e) {
+         throw new IllegalArgumentException("not a number: " + value);
+      }
+   }
+
+   private static Map<String, String> query(String raw)
+         throws UnsupportedEncodingException {
+      Map<String, String> query = new HashMap<String, String>();
+      if (raw == null) {
+         return query;
+      }
+      for (String pair : raw.split("&")) {
+         int eq = pair.indexOf('=');
+         if (eq > 0) {
+            query.put(URLDecoder.decode(pair.substring(0, eq), "UTF-8"),
+                  URLDecoder.decode(pair.substring(eq + 1), "UTF-8"));
+         }
+      }
+      return query;
+   }
+
+   /**
+    * One client's game. The engine is cleared when the session closes so a
+    * request already holding the session sees it as gone.
+    */
+   private static final class Session {
+      private GameEngine engine;
+
+      Session(GameEngine engine) {
+         this.engine = engine;
+      }
+
+      synchronized void close() {
+         if (engine != null) {
+            engine.close();
+            engine = null;
+         }
+      }
+   }
+
+   /**
+    * Thrown when a request names a session that does not exist.
+    */
+   private static final class NoSuchSession extends RuntimeException {
+      private static final long serialVersionUID = 1L;
+   }
+}
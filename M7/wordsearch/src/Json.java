@@ -0,0 +1,300 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the small pieces of JSON produced by the batch tools and the game
+ * server, and reads the request bodies the server accepts.
+ */
+final class Json {
+
+   /** The deepest nesting of arrays and objects parse() accepts. */
+   static final int MAX_DEPTH = 64;
+
+   private Json() {
+   }
+
+   /**
+    * Appends a string as a quoted JSON string.
+    *
+    * @param out where to append
+    * @param s the string to quote
+    * @return out
+    */
+   static StringBuilder quote(StringBuilder out, String s) {
+      out.append('"');
+      for (int i = 0; i < s.length(); i++) {
+         char c = s.charAt(i);
+         switch (c) {
+            case '"':
+               out.append("\\\"");
+               break;
+            case '\\':
+               out.append("\\\\");
+               break;
+            case '\n':
+               out.append("\\n");
+               break;
+            case '\r':
+               out.append("\\r");
+               break;
+            case '\t':
+               out.append("\\t");
+               break;
+            default:
+               if (c < 0x20) {
+                  out.append(String.format("\\u%04x", (int) c));
+               }
+               else {
+                  out.append(c);
+               }
+         }
+      }
+      return out.append('"');
+   }
+
+   /**
+    * Appends strings as a JSON array.
+    *
+    * @param out where to append
+    * @param values the strings to write
+    * @return out
+    */
+   static StringBuilder array(StringBuilder out, Collection<String> values) {
+      out.append('[');
+      boolean first = true;
+      for (String value : values) {
+         if (!first) {
+            out.append(',');
+         }
+         quote(out, value);
+         first = false;
+      }
+      return out.append(']');
+   }
+
+   /**
+    * Parses a JSON value. Objects become maps in key order, arrays become
+    * lists, numbers become Long or Double, and null becomes null. Arrays and
+    * objects may be nested at most MAX_DEPTH deep, so hostile input cannot
+    * exhaust the stack.
+    *
+    * @param text the JSON text
+    * @return the value
+    * @throws IllegalArgumentException if text is not one well-formed value
+    *     or is nested too deeply
+    */
+   static Object parse(String text) {
+      Parser parser = new Parser(text);
+      Object value = parser.value();
+      parser.skipSpace();
+      if (parser.at < text.length()) {
+         throw parser.error();
+      }
+      return value;
+   }
+
+   /**
+    * Reads one value at a time from JSON text.
+    */
+   private static final class Parser {
+      private final String text;
+      private int at;
+      private int depth;
+
+      Parser(String text) {
+         this.text = text;
+      }
+
+      Object value() {
+         skipSpace();
+         if (at >= text.length()) {
+            throw error();
+         }
+         char c = text.charAt(at);
+         switch (c) {
+            case '{':
+               enter();
+               Map<String, Object> object = object();
+               depth--;
+               return object;
+            case '[':
+               enter();
+               List<Object> array = array();
+               depth--;
+               return array;
+            case '"':
+               return string();
+            case 't':
+               return literal("true", Boolean.TRUE);
+            case 'f':
+               return literal("false", Boolean.FALSE);
+            case 'n':
+               return literal("null", null);
+            default:
+               return number();
+         }
+      }
+
+      private void enter() {
+         if (++depth > MAX_DEPTH) {
+            throw new IllegalArgumentException(
+                  "JSON nested too deeply at offset " + at);
+         }
+      }
+
+      private Map<String, Object> object() {
+         Map<String, Object> map = new LinkedHashMap<String, Object>();
+         at++;
+         skipSpace();
+         if (peek() == '}') {
+            at++;
+            return map;
+         }
+         while (true) {
+            skipSpace();
+            if (peek() != '"') {
+               throw error();
+            }
+            String key = string();
+            skipSpace();
+            expect(':');
+            map.put(key, value());
+            skipSpace();
+            if (peek() == ',') {
+               at++;
+            }
+            else {
+               expect('}');
+               return map;
+            }
+         }
+      }
+
+      private List<Object> array() {
+         List<Object> list = new ArrayList<Object>();
+         at++;
+         skipSpace();
+         if (peek() == ']') {
+            at++;
+            return list;
+         }
+         while (true) {
+            list.add(value());
+            skipSpace();
+            if (peek() == ',') {
+               at++;
+            }
+            else {
+               expect(']');
+               return list;
+            }
+         }
+      }
+
+      private String string() {
+         StringBuilder out = new StringBuilder();
+         at++;
+         while (true) {
+            if (at >= text.length()) {
+               throw error();
+            }
+            char c = text.charAt(at++);
+            if (c == '"') {
+               return out.toString();
+            }
+            if (c != '\\') {
+               out.append(c);
+               continue;
+            }
+            if (at >= text.length()) {
+               throw error();
+            }
+            c = text.charAt(at++);
+            switch (c) {
+               case 'b':
+                  out.append('\b');
+                  break;
+               case 'f':
+                  out.append('\f');
+                  break;
+               case 'n':
+                  out.append('\n');
+                  break;
+               case 'r':
+                  out.append('\r');
+                  break;
+               case 't':
+                  out.append('\t');
+                  break;
+               case 'u':
+                  if (at + 4 > text.length()) {
+                     throw error();
+                  }
+                  try {
+                     out.append((char) Integer.parseInt(
+                           text.substring(at, at + 4), 16));
+                  }
+                  catch (NumberFormatException e) {
+                     throw error();
+                  }
+                  at += 4;
+                  break;
+               default:
+                  out.append(c);
+            }
+         }
+      }
+
+      private Object literal(String word, Object value) {
+         if (!text.startsWith(word, at)) {
+            throw error();
+         }
+         at += word.length();
+         return value;
+      }
+
+      private Number number() {
+         int start = at;
+         while (at < text.length()
+               && "+-0123456789.eE".indexOf(text.charAt(at)) >= 0) {
+            at++;
+         }
+         String digits = text.substring(start, at);
+         try {
+            if (digits.indexOf('.') < 0 && digits.indexOf('e') < 0
+                  && digits.indexOf('E') < 0) {
+               return Long.valueOf(digits);
+            }
+            return Double.valueOf(digits);
+         }
+         catch (NumberFormatException e) {
+            throw error();
+         }
+      }
+
+      private void expect(char c) {
+         if (peek() != c) {
+            throw error();
+         }
+         at++;
+      }
+
+      private char peek() {
+         return at < text.length() ? text.charAt(at) : 0;
+      }
+
+      void skipSpace() {
+         while (at < text.length()
+               && Character.isWhitespace(text.charAt(at))) {
+            at++;
+         }
+      }
+
+      IllegalArgumentException error() {
+         return new IllegalArgumentException("malformed JSON at offset " + at);
+      }
+   }
+}
@@ -0,0 +1,147 @@
+/**
+ * Defines the word list queries made by the word search engine.
+ *
+ * Besides whole-string lookups, a lexicon exposes its words as a tree of
+ * opaque int nodes. A search starts at root() and moves down one character
+ * at a time with child(), so a caller that extends a word one letter at a
+ * time pays a constant amount of work per letter instead of re-checking the
+ * whole string.
+ */
+public interface Lexicon {
+
+   /** Returned by child() when no word continues with the given character. */
+   int NONE = -1;
+
+   /**
+    * Returns the number of words in this lexicon.
+    *
+    * @return number of words
+    */
+   int size();
+
+   /**
+    * Returns the number of bytes of memory holding this lexicon's data,
+    * whether on the heap or mapped from a file.
+    *
+    * @return size of the lexicon data in bytes
+    */
+   long footprint();
+
+   /**
+    * Returns the node for the empty prefix.
+    *
+    * @return the root node
+    */
+   int root();
+
+   /**
+    * Moves from a node to the node for its prefix extended by c.
+    *
+    * @param node a node previously returned by root() or child()
+    * @param c the next character
+    * @return the child node, or NONE if no word has that prefix
+    */
+   int child(int node, char c);
+
+   /**
+    * Determines if the prefix spelled by a node is itself a word.
+    *
+    * @param node a node previously returned by root() or child()
+    * @return true if the node ends a word, false otherwise
+    */
+   boolean isWord(int node);
+
+   /**
+    * Determines if the given string is a word in this lexicon.
+    *
+    * @param word the string to check
+    * @return true if word is in this lexicon, false otherwise
+    */
+   default boolean contains(CharSequence word) {
+      int node = walk(word);
+      return node != NONE && isWord(node);
+   }
+
+   /**
+    * Determines if at least one word in this lexicon starts with the given
+    * prefix.
+    *
+    * @param prefix the prefix to check
+    * @return true if some word has the prefix, false otherwise
+    */
+   default boolean containsPrefix(CharSequence prefix) {
+      return walk(prefix) != NONE;
+   }
+
+   /**
+    * Returns how many more characters the longest word below a node has
+    * beyond the node's prefix. Lexicons that do not track this report
+    * Integer.MAX_VALUE / 2, which never rules a branch out.
+    *
+    * @param node a node previously returned by root() or child()
+    * @return the length of the longest remaining suffix
+    */
+   default int height(int node) {
+      return Integer.MAX_VALUE / 2;
+   }
+
+   /**
+    * Returns the letters every word below a node needs, as a mask: bit i is
+    * set if each of those words holds the letter 'A' + i at least once, and
+    * bit 32 + i if each holds it at least twice. A board that lacks any of
+    * those letters cannot spell a word below the node. Lexicons that do not
+    * track this report 0, which never rules a branch out.
+    *
+    * @param node a node previously returned by root() or child()
+    * @return the letters needed, in the form built by withLetter()
+    */
+   default long letters(int node) {
+      return 0;
+   }
+
+   /**
+    * Adds one copy of a character to a letter mask as used by letters().
+    * Characters other than 'A' to 'Z' are not tracked, and copies beyond
+    * the second are not counted.
+    *
+    * @param letters the mask so far
+    * @param c the character to add
+    * @return the mask with c added
+    */
+   static long withLetter(long letters, char c) {
+      if (c < 'A' || c > 'Z') {
+         return letters;
+      }
+      long once = 1L << (c - 'A');
+      return (letters & once) == 0 ? letters | once : letters | once << 32;
+   }
+
+   /**
+    * Follows several characters from a node, as when a board cell holds a
+    * multi-character tile.
+    *
+    * @param node a node previously returned by root() or child()
+    * @param chars the characters to follow
+    * @return the node reached, or NONE if no word continues that way
+    */
+   default int walk(int node, char[] chars) {
+      for (int i = 0; i < chars.length && node != NONE; i++) {
+         node = child(node, chars[i]);
+      }
+      return node;
+   }
+
+   /**
+    * Follows the characters of s from the root.
+    *
+    * @param s the characters to follow
+    * @return the node spelled by s, or NONE if no word has s as a prefix
+    */
+   default int walk(CharSequence s) {
+      int node = root();
+      for (int i = 0; i < s.length() && node != NONE; i++) {
+         node = child(node, s.charAt(i));
+      }
+      return node;
+   }
+}
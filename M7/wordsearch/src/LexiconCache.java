@@ -0,0 +1,192 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Shares immutable lexicons between games.
+ *
+ * Lexicons are keyed by canonical file path and modification time, so
+ * every game that loads the same unchanged file gets the same instance, and
+ * editing the file makes later loads read it again. Each acquire() must be
+ * matched by a release(); a lexicon is dropped from the cache once no game
+ * holds it.
+ *
+ * This class is thread-safe. A file is read by the first thread that asks
+ * for it while other threads wait for that entry only.
+ */
+public final class LexiconCache {
+
+   private final Map<Key, Entry> entries = new HashMap<Key, Entry>();
+   private final Map<Lexicon, Entry> holders =
+         new IdentityHashMap<Lexicon, Entry>();
+   private long hits;
+   private long misses;
+
+   /**
+    * Returns the lexicon for a word list or image file, reading it only if
+    * no game currently holds it.
+    *
+    * @param fileName the file to load
+    * @return the shared lexicon
+    * @throws IOException if the file cannot be read
+    */
+   public Lexicon acquire(String fileName) throws IOException {
+      File file = new File(fileName).getCanonicalFile();
+      Key key = new Key(file.getPath(), file.lastModified());
+      Entry entry;
+      synchronized (this) {
+         entry = entries.get(key);
+         if (entry == null) {
+            entry = new Entry(key);
+            entries.put(key, entry);
+            misses++;
+         }
+         else {
+            hits++;
+         }
+         entry.references++;
+      }
+      try {
+         Lexicon lexicon = entry.load(file);
+         synchronized (this) {
+            holders.put(lexicon, entry);
+         }
+         return lexicon;
+      }
+      catch (IOException e) {
+         release(entry);
+         throw e;
+      }
+   }
+
+   /**
+    * Gives back a lexicon returned by acquire().
+    *
+    * @param lexicon the lexicon no longer needed by the caller
+    * @throws IllegalArgumentException if lexicon did not come from this cache
+    */
+   public void release(Lexicon lexicon) {
+      Entry entry;
+      synchronized (this) {
+         entry = holders.get(lexicon);
+      }
+      if (entry == null) {
+         throw new IllegalArgumentException("lexicon not held by this cache");
+      }
+      release(entry);
+   }
+
+   private synchronized void release(Entry entry) {
+      entry.references--;
+      if (entry.references == 0) {
+         entries.remove(entry.key);
+         if (entry.lexicon != null) {
+            holders.remove(entry.lexicon);
+         }
+      }
+   }
+
+   /**
+    * Reads a lexicon from a compiled image or a plain word list. A trie
+    * image is mapped as a MappedLexicon, a front-coded image is read into
+    * a FrontCodedLexicon, and anything else is read as a word list into a
+    * TrieLexicon.
+    *
+    * @param file the file to read
+    * @return the lexicon in the file
+    * @throws IOException if the file cannot be read
+    */
+   static Lexicon load(File file) throws IOException {
+      if (MappedLexicon.isImage(file)) {
+         return MappedLexicon.open(file);
+      }
+      if (FrontCodedLexicon.isImage(file)) {
+         return FrontCodedLexicon.open(file);
+      }
+      return TrieLexicon.fromWordList(file);
+   }
+
+   /**
+    * Returns how many acquire() calls found their lexicon already loaded.
+    *
+    * @return number of cache hits
+    */
+   public synchronized long hits() {
+      return hits;
+   }
+
+   /**
+    * Returns how many acquire() calls had to read a file.
+    *
+    * @return number of cache misses
+    */
+   public synchronized long misses() {
+      return misses;
+   }
+
+   /**
+    * Returns the number of distinct lexicons currently held by games.
+    *
+    * @return number of cached lexicons
+    */
+   public synchronized int size() {
+      return holders.size();
+   }
+
+   /**
+    * Returns the combined footprint of every cached lexicon.
+    *
+    * @return resident lexicon bytes
+    */
+   public synchronized long residentBytes() {
+      long bytes = 0;
+      for (Lexicon lexicon : holders.keySet()) {
+         bytes += lexicon.footprint();
+      }
+      return bytes;
+   }
+
+   private static final class Key {
+      private final String path;
+      private final long modified;
+
+      Key(String path, long modified) {
+         this.path = path;
+         this.modified = modified;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) o;
+         return modified == other.modified && path.equals(other.path);
+      }
+
+      @Override
+      public int hashCode() {
+         return Objects.hash(path, modified);
+      }
+   }
+
+   private static final class Entry {
+      private final Key key;
+      private int references;
+      private Lexicon lexicon;
+
+      Entry(Key key) {
+         this.key = key;
+      }
+
+      synchronized Lexicon load(File file) throws IOException {
+         if (lexicon == null) {
+            lexicon = LexiconCache.load(file);
+         }
+         return lexicon;
+      }
+   }
+}
@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LoadGenerator.java
+ * Drives a running GameServer with simulated players and reports
+ * throughput and latency per endpoint.
+ *
+ * Each client opens a session and then repeatedly sets a board, solves it,
+ * scores the words found and checks one of them on the board. Boards are
+ * drawn from a fixed set of random boards, so a small set imitates many
+ * players on the same daily challenge. Requests turned away with 503 are
+ * counted and retried after a short pause.
+ *
+ *      java LoadGenerator http://localhost:8080 [clients] [seconds]
+ *                         [boardSize] [distinctBoards]
+ */
+public class LoadGenerator {
+
+   // letters weighted roughly by their frequency in English
+   private static final String LETTERS = "EEEEEEEEEEEETTTTTTTTTAAAAAAAAO"
+         + "OOOOOOIIIIIIINNNNNNNSSSSSSHHHHHHRRRRRRDDDDLLLLCCCUUUMMWWFFGGYYPP"
+         + "BBVKJXQZ";
+
+   // pause before retrying a request the server turned away
+   private static final long BACKOFF_MILLIS = 5;
+
+   // 1.0E9 ns per second
+   private static final double SECONDS = 1_000_000_000d;
+
+   /** Drives execution. */
+   public static void main(String[] args) throws Exception {
+      if (args.length < 1) {
+         System.err.println("usage: java LoadGenerator url [clients]"
+               + " [seconds] [boardSize] [distinctBoards]");
+         System.exit(1);
+      }
+      int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+      int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+      int size = args.length > 3 ? Integer.parseInt(args[3]) : 4;
+      int distinct = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+
+      LoadGenerator load = new LoadGenerator(args[0], size, distinct, 42);
+      load.run(clients, seconds * 1000L);
+      System.out.println(load.report());
+   }
+
+   private final String base;
+   private final String[][] boards;
+   private final HttpClient client = HttpClient.newHttpClient();
+   private final Map<GameServer.Endpoint, LatencyHistogram> latency =
+         new EnumMap<GameServer.Endpoint, LatencyHistogram>(
+               GameServer.Endpoint.class);
+   private final AtomicLong completed = new AtomicLong();
+   private final AtomicLong rejected = new AtomicLong();
+   private final AtomicLong failed = new AtomicLong();
+   private long elapsed;
+
+   /**
+    * Creates a load generator.
+    *
+    * @param url the server's base URL
+    * @param boardSize the width of the boards to play
+    * @param distinctBoards the number of different boards to draw from
+    * @param seed the seed for generating the boards
+    */
+   public LoadGenerator(String url, int boardSize, int distinctBoards,
+                        long seed) {
+      if (boardSize < 1 || distinctBoards < 1) {
+         throw new IllegalArgumentException();
+      }
+      base = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+      Random random = new Random(seed);
+      boards = new String[distinctBoards][boardSize * boardSize];
+      for (String[] board : boards) {
+         for (int i = 0; i < board.length; i++) {
+            board[i] = String.valueOf(
+                  LETTERS.charAt(random.nextInt(LETTERS.length())));
+         }
+      }
+      for (GameServer.Endpoint endpoint : GameServer.Endpoint.values()) {
+         latency.put(endpoint, new LatencyHistogram());
+      }
+   }
+
+   /**
+    * Runs the given number of clients until the time is up.
+    *
+    * @param clients the number of concurrent clients
+    * @param millis how long to run
+    * @throws InterruptedException if interrupted while waiting for clients
+    */
+   public void run(int clients, long millis) throws InterruptedException {
+      long start = System.nanoTime();
+      long deadline = start + millis * 1_000_000L;
+      Thread[] threads = new Thread[clients];
+      for (int i = 0; i < clients; i++) {
+         long seed = i;
+         threads[i] = new Thread(() -> play(deadline, new Random(seed)));
+         threads[i].start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+      elapsed = System.nanoTime() - start;
+   }
+
+   /**
+    * Plays rounds on one session until the deadline.
+    */
+   private void play(long deadline, Random random) {
+      try {
+         Object created = call(GameServer.Endpoint.CREATE, "POST",
+               "/sessions", null, deadline);
+         if (created == null) {
+            return;
+         }
+         String session = "/sessions/" + ((Map<?, ?>) created).get("session");
+         while (System.nanoTime() < deadline) {
+            String[] board = boards[random.nextInt(boards.length)];
+            List<String> cells = new ArrayList<String>();
+            for (String cell : board) {
+               cells.add(cell);
+            }
+            String body = Json.array(new StringBuilder("{\"board\":"), cells)
+                  .append('}').toString();
+            if (call(GameServer.Endpoint.BOARD, "PUT", session + "/board",
+                  body, deadline) == null) {
+               break;
+            }
+            Object solved = call(GameServer.Endpoint.SOLVE, "GET",
+                  session + "/solve?min=3", null, deadline);
+            if (solved == null) {
+               break;
+            }
+            List<?> words = (List<?>) ((Map<?, ?>) solved).get("words");
+            List<String> guesses = new ArrayList<String>();
+            for (Object word : words) {
+               guesses.add((String) word);
+            }
+            body = Json.array(new StringBuilder("{\"words\":"), guesses)
+                  .append(",\"min\":3}").toString();
+            if (call(GameServer.Endpoint.SCORE, "POST", session + "/score",
+                  body, deadline) == null) {
+               break;
+            }
+            if (!guesses.isEmpty()) {
+               String word = guesses.get(random.nextInt(guesses.size()));
+               if (call(GameServer.Endpoint.ON_BOARD, "GET", session
+                     + "/onboard?word=" + URLEncoder.encode(word, "UTF-8"),
+                     null, deadline) == null) {
+                  break;
+               }
+            }
+         }
+         call(GameServer.Endpoint.CLOSE, "DELETE", session, null,
+               Long.MAX_VALUE);
+      }
+      catch (IOException e) {
+         failed.incrementAndGet();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * Sends one request, retrying while the server is busy, and returns the
+    * parsed response, or null if the deadline passed or the request failed.
+    */
+   private Object call(GameServer.Endpoint endpoint, String method,
+                       String path, String body, long deadline)
+         throws IOException, InterruptedException {
+      HttpRequest.BodyPublisher content = body == null
+            ? HttpRequest.BodyPublishers.noBody()
+            : HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8);
+      HttpRequest.Builder request =
+            HttpRequest.newBuilder(URI.create(base + path)).method(method,
+                  content);
+      while (true) {
+         long started = System.nanoTime();
+         HttpResponse<String> response = client.send(request.build(),
+               HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+         if (response.statusCode() == 503) {
+            rejected.incrementAndGet();
+            if (System.nanoTime() >= deadline) {
+               return null;
+            }
+            Thread.sleep(BACKOFF_MILLIS);
+            continue;
+         }
+         latency.get(endpoint).record(System.nanoTime() - started);
+         if (response.statusCode() != 200) {
+            failed.incrementAndGet();
+            return null;
+         }
+         completed.incrementAndGet();
+         return Json.parse(response.body());
+      }
+   }
+
+   /**
+    * Summarizes throughput and latency of the last run.
+    *
+    * @return a multi-line report
+    */
+   public String report() {
+      StringBuilder out = new StringBuilder();
+      out.append(String.format("%d requests in %.2fs, %.1f requests/s,"
+            + " %d rejected (503), %d failed%n", completed.get(),
+            elapsed / SECONDS, completed.get() / Math.max(elapsed / SECONDS,
+            1e-9), rejected.get(), failed.get()));
+      for (Map.Entry<GameServer.Endpoint, LatencyHistogram> entry
+            : latency.entrySet()) {
+         if (entry.getValue().count() > 0) {
+            out.append(String.format("  %-8s %s%n",
+                  entry.getKey().name().toLowerCase(), entry.getValue()));
+         }
+      }
+      return out.toString();
+   }
+}
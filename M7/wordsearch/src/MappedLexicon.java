@@ -0,0 +1,213 @@
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Provides a Lexicon that is queried in place from a memory-mapped image
+ * file.
+ *
+ * An image is a TrieLexicon written out node by node. Opening one maps the
+ * file and reads a 16 byte header, so start-up cost does not grow with the
+ * word list and the nodes live in the page cache instead of on the Java heap.
+ *
+ * Image layout, big-endian:
+ *    int magic, int version, int word count, int node count, then one
+ *    8 byte record per node in trie order: char label, char flags (the top
+ *    bit marks a word, the rest is the child count), int first child;
+ *    then a char height per node, then a long letter mask per node, as
+ *    returned by TrieLexicon.height() and letters().
+ *
+ * Version 1 images lack the heights and letter masks, which the solver
+ * prunes with, and must be compiled again.
+ *
+ * Compile a word list into an image with
+ *
+ *      java MappedLexicon Wordlist.txt Wordlist.lex
+ */
+public final class MappedLexicon implements Lexicon {
+
+   private static final int MAGIC = 0x57534C58;
+   private static final int VERSION = 2;
+   private static final int HEADER_BYTES = 16;
+   private static final int NODE_BYTES = 8;
+   // per-node bytes across the record, height and letter mask sections
+   private static final int TOTAL_NODE_BYTES =
+         NODE_BYTES + Character.BYTES + Long.BYTES;
+   private static final int WORD_FLAG = 0x8000;
+   private static final int COUNT_MASK = 0x7FFF;
+
+   private final MappedByteBuffer image;
+   private final int size;
+   private final int nodeCount;
+   private final int heights;
+   private final int letters;
+
+   private MappedLexicon(MappedByteBuffer image) throws IOException {
+      this.image = image;
+      if (image.capacity() < HEADER_BYTES || image.getInt(0) != MAGIC) {
+         throw new IOException("not a lexicon image");
+      }
+      if (image.getInt(4) != VERSION) {
+         throw new IOException("unsupported lexicon image version "
+               + image.getInt(4) + "; compile the word list again");
+      }
+      size = image.getInt(8);
+      nodeCount = image.getInt(12);
+      if (image.capacity()
+            != HEADER_BYTES + (long) nodeCount * TOTAL_NODE_BYTES) {
+         throw new IOException("truncated lexicon image");
+      }
+      heights = HEADER_BYTES + nodeCount * NODE_BYTES;
+      letters = heights + nodeCount * Character.BYTES;
+   }
+
+   /**
+    * Maps an image file written by write().
+    *
+    * @param file the image
+    * @return a lexicon reading from the mapped file
+    * @throws IOException if the file cannot be mapped or is not an image
+    */
+   public static MappedLexicon open(File file) throws IOException {
+      FileChannel channel =
+            FileChannel.open(file.toPath(), StandardOpenOption.READ);
+      try {
+         return new MappedLexicon(
+               channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+      }
+      finally {
+         // the mapping stays valid after the channel is closed
+         channel.close();
+      }
+   }
+
+   /**
+    * Determines if a file starts with the image header.
+    *
+    * @param file the file to check
+    * @return true if the file looks like an image, false otherwise
+    * @throws IOException if the file exists but cannot be read
+    */
+   public static boolean isImage(File file) throws IOException {
+      if (!file.isFile() || file.length() < HEADER_BYTES) {
+         return false;
+      }
+      DataInputStream in = new DataInputStream(new FileInputStream(file));
+      try {
+         return in.readInt() == MAGIC;
+      }
+      finally {
+         in.close();
+      }
+   }
+
+   /**
+    * Writes a trie to an image file.
+    *
+    * @param trie the lexicon to write
+    * @param file the image to create or replace
+    * @throws IOException if the file cannot be written
+    * @throws IllegalArgumentException if a node has too many children for
+    *     the image format
+    */
+   public static void write(TrieLexicon trie, File file) throws IOException {
+      DataOutputStream out = new DataOutputStream(
+            new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+      try {
+         out.writeInt(MAGIC);
+         out.writeInt(VERSION);
+         out.writeInt(trie.size());
+         out.writeInt(trie.nodeCount());
+         for (int node = 0; node < trie.nodeCount(); node++) {
+            int count = trie.childCount(node);
+            if (count > COUNT_MASK) {
+               throw new IllegalArgumentException("alphabet too large");
+            }
+            out.writeChar(trie.label(node));
+            out.writeChar(trie.isWord(node) ? count | WORD_FLAG : count);
+            out.writeInt(trie.firstChild(node));
+         }
+         for (int node = 0; node < trie.nodeCount(); node++) {
+            out.writeChar(trie.height(node));
+         }
+         for (int node = 0; node < trie.nodeCount(); node++) {
+            out.writeLong(trie.letters(node));
+         }
+      }
+      finally {
+         out.close();
+      }
+   }
+
+   /** Compiles the word list named by args[0] into the image args[1]. */
+   public static void main(String[] args) throws IOException {
+      if (args.length != 2) {
+         System.err.println("usage: java MappedLexicon wordlist image");
+         System.exit(1);
+      }
+      TrieLexicon trie = TrieLexicon.fromWordList(new File(args[0]));
+      write(trie, new File(args[1]));
+      System.out.println(trie.size() + " words, " + trie.nodeCount()
+            + " nodes written to " + args[1]);
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   public long footprint() {
+      return image.capacity();
+   }
+
+   @Override
+   public int root() {
+      return 0;
+   }
+
+   @Override
+   public int child(int node, char c) {
+      int at = HEADER_BYTES + node * NODE_BYTES;
+      int count = image.getChar(at + 2) & COUNT_MASK;
+      int first = image.getInt(at + 4);
+      for (int i = first; i < first + count; i++) {
+         if (image.getChar(HEADER_BYTES + i * NODE_BYTES) == c) {
+            return i;
+         }
+      }
+      return NONE;
+   }
+
+   @Override
+   public int height(int node) {
+      return image.getChar(heights + node * Character.BYTES);
+   }
+
+   @Override
+   public long letters(int node) {
+      return image.getLong(letters + node * Long.BYTES);
+   }
+
+   @Override
+   public boolean isWord(int node) {
+      return (image.getChar(HEADER_BYTES + node * NODE_BYTES + 2)
+            & WORD_FLAG) != 0;
+   }
+
+   /**
+    * Returns the number of nodes in the image.
+    *
+    * @return number of nodes
+    */
+   public int nodeCount() {
+      return nodeCount;
+   }
+}
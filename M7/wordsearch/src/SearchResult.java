@@ -0,0 +1,101 @@
+import java.util.Collections;
+import java.util.SortedSet;
+
+/**
+ * Holds the words found by a board search that may have been cut short by
+ * a time or work budget, with figures describing how far it got.
+ */
+public final class SearchResult {
+
+   private final SortedSet<String> words;
+   private final boolean complete;
+   private final long nodesExpanded;
+   private final long prunedBranches;
+   private final int startCellsSearched;
+   private final int startCells;
+   private final long elapsedNanos;
+
+   SearchResult(SortedSet<String> words, boolean complete, long nodesExpanded,
+                long prunedBranches, int startCellsSearched, int startCells,
+                long elapsedNanos) {
+      this.words = Collections.unmodifiableSortedSet(words);
+      this.complete = complete;
+      this.nodesExpanded = nodesExpanded;
+      this.prunedBranches = prunedBranches;
+      this.startCellsSearched = startCellsSearched;
+      this.startCells = startCells;
+      this.elapsedNanos = elapsedNanos;
+   }
+
+   /**
+    * Returns the words found.
+    *
+    * @return the words in ascending order
+    */
+   public SortedSet<String> words() {
+      return words;
+   }
+
+   /**
+    * Determines if the whole board was searched, so that words() holds
+    * every scorable word.
+    *
+    * @return true if the search finished, false if a budget ran out
+    */
+   public boolean isComplete() {
+      return complete;
+   }
+
+   /**
+    * Returns the number of cells pushed onto search paths.
+    *
+    * @return nodes expanded
+    */
+   public long nodesExpanded() {
+      return nodesExpanded;
+   }
+
+   /**
+    * Returns the number of cells rejected while searching.
+    *
+    * @return branches pruned
+    */
+   public long prunedBranches() {
+      return prunedBranches;
+   }
+
+   /**
+    * Returns the number of starting cells whose words were all found.
+    *
+    * @return starting cells searched completely
+    */
+   public int startCellsSearched() {
+      return startCellsSearched;
+   }
+
+   /**
+    * Returns the number of cells on the board.
+    *
+    * @return number of starting cells
+    */
+   public int startCells() {
+      return startCells;
+   }
+
+   /**
+    * Returns how long the search ran.
+    *
+    * @return elapsed time in nanoseconds
+    */
+   public long elapsedNanos() {
+      return elapsedNanos;
+   }
+
+   @Override
+   public String toString() {
+      return String.format("%d words, %s, %d/%d start cells, %d expanded,"
+            + " %d pruned, %.3fms", words.size(),
+            complete ? "complete" : "partial", startCellsSearched, startCells,
+            nodesExpanded, prunedBranches, elapsedNanos / 1e6);
+   }
+}
@@ -0,0 +1,194 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Holds every lexicon word found on one board, each with the first path
+ * that spells it. A solution is immutable once built.
+ */
+final class Solution {
+
+   // rough per-word overhead: a hash map node and table slot, a String and
+   // the headers of its character array and of the path array
+   private static final int BYTES_PER_WORD = 40 + 24 + 16 + 16;
+
+   private final Map<String, int[]> paths;
+   private final int minimumLength;
+   private final long bytes;
+
+   private Solution(Map<String, int[]> paths, int minimumLength) {
+      this.paths = Collections.unmodifiableMap(paths);
+      this.minimumLength = minimumLength;
+      long total = 64;
+      for (Map.Entry<String, int[]> entry : paths.entrySet()) {
+         total += BYTES_PER_WORD + entry.getKey().length() * 2
+               + entry.getValue().length * 4;
+      }
+      bytes = total;
+   }
+
+   /**
+    * Runs a solver over its whole board.
+    *
+    * @param solver the solver for the board and lexicon
+    * @param minimumLength the shortest word to keep
+    * @return the words found and their paths
+    */
+   static Solution solve(BoardSolver solver, int minimumLength) {
+      Map<String, int[]> paths = new HashMap<String, int[]>();
+      solver.start(0, solver.cellCount(), minimumLength);
+      while (solver.next()) {
+         String word = solver.word();
+         if (!paths.containsKey(word)) {
+            paths.put(word, solver.path());
+         }
+      }
+      return new Solution(paths, minimumLength);
+   }
+
+   /**
+    * Updates this solution after one cell of the board changed. Words whose
+    * recorded path avoids the cell keep it. Words whose path used the cell
+    * are looked for again, and new words are found by searching only the
+    * paths that pass through the cell.
+    *
+    * @param solver a solver for the board as it is after the change
+    * @param cell the cell that changed
+    * @return the solution for the changed board
+    */
+   Solution withCellChanged(BoardSolver solver, int cell) {
+      Map<String, int[]> updated = new HashMap<String, int[]>();
+      List<String> recheck = new ArrayList<String>();
+      for (Map.Entry<String, int[]> entry : paths.entrySet()) {
+         if (uses(entry.getValue(), cell)) {
+            recheck.add(entry.getKey());
+         }
+         else {
+            updated.put(entry.getKey(), entry.getValue());
+         }
+      }
+      solver.start(0, solver.cellCount(), minimumLength);
+      solver.requireCell(cell);
+      while (solver.next()) {
+         String word = solver.word();
+         if (!updated.containsKey(word)) {
+            updated.put(word, solver.path());
+         }
+      }
+      for (String word : recheck) {
+         if (!updated.containsKey(word)) {
+            int[] path = solver.find(word);
+            if (path != null) {
+               updated.put(word, path);
+            }
+         }
+      }
+      return new Solution(updated, minimumLength);
+   }
+
+   private static boolean uses(int[] path, int cell) {
+      for (int i : path) {
+         if (i == cell) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   /**
+    * Determines if this solution lists every word of the given length or
+    * longer.
+    *
+    * @param length a minimum word length
+    * @return true if no word that long can be missing, false otherwise
+    */
+   boolean covers(int length) {
+      return length >= minimumLength;
+   }
+
+   /**
+    * Returns the shortest word length this solution was built for.
+    *
+    * @return the minimum word length
+    */
+   int minimumLength() {
+      return minimumLength;
+   }
+
+   /**
+    * Determines if a word was found on the board.
+    *
+    * @param word the word to look up
+    * @return true if word is in this solution, false otherwise
+    */
+   boolean contains(String word) {
+      return paths.containsKey(word);
+   }
+
+   /**
+    * Returns the path recorded for a word.
+    *
+    * @param word the word to look up
+    * @return the cells spelling word, or null if it was not found
+    */
+   int[] path(String word) {
+      int[] path = paths.get(word);
+      return path == null ? null : path.clone();
+   }
+
+   /**
+    * Returns the words found that have at least the given length.
+    *
+    * @param length the minimum word length, no less than minimumLength()
+    * @return the words in ascending order
+    */
+   SortedSet<String> words(int length) {
+      SortedSet<String> words = new TreeSet<String>();
+      for (String word : paths.keySet()) {
+         if (word.length() >= length) {
+            words.add(word);
+         }
+      }
+      return words;
+   }
+
+   /**
+    * Returns the total score of the words found that have at least the
+    * given length: one point for a word of that length and one more for
+    * each extra character.
+    *
+    * @param length the minimum word length, no less than minimumLength()
+    * @return the total score
+    */
+   int score(int length) {
+      int score = 0;
+      for (String word : paths.keySet()) {
+         if (word.length() >= length) {
+            score += word.length() - length + 1;
+         }
+      }
+      return score;
+   }
+
+   /**
+    * Returns the number of words found.
+    *
+    * @return number of words
+    */
+   int size() {
+      return paths.size();
+   }
+
+   /**
+    * Returns a rough estimate of the memory this solution holds.
+    *
+    * @return estimated bytes
+    */
+   long estimatedBytes() {
+      return bytes;
+   }
+}
@@ -0,0 +1,229 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps recently solved boards so that engines given the same board again
+ * can skip the search.
+ *
+ * Entries are keyed by the board contents, the lexicon instance and the
+ * minimum word length, and are evicted least recently used first once
+ * either the entry limit or the estimated memory limit is exceeded.
+ * Solutions are immutable, so one cached solution can be handed to any
+ * number of engines. A cached entry keeps its lexicon reachable until the
+ * entry is evicted or the cache is cleared. This class is thread-safe.
+ */
+public final class SolutionCache {
+
+   private static final int DEFAULT_ENTRIES = 1024;
+   private static final long DEFAULT_BYTES = 64L << 20;
+
+   private static final SolutionCache SHARED =
+         new SolutionCache(DEFAULT_ENTRIES, DEFAULT_BYTES);
+   private static final SolutionCache NONE = new SolutionCache();
+
+   private final int maxEntries;
+   private final long maxBytes;
+   private final LinkedHashMap<Key, Solution> entries =
+         new LinkedHashMap<Key, Solution>(16, 0.75f, true);
+   private long bytes;
+   private long hits;
+   private long misses;
+   private long evictions;
+
+   /**
+    * Creates a cache.
+    *
+    * @param maxEntries the most solutions to keep
+    * @param maxBytes the most estimated solution memory to keep
+    * @throws IllegalArgumentException if either limit is less than 1
+    */
+   public SolutionCache(int maxEntries, long maxBytes) {
+      if (maxEntries < 1 || maxBytes < 1) {
+         throw new IllegalArgumentException();
+      }
+      this.maxEntries = maxEntries;
+      this.maxBytes = maxBytes;
+   }
+
+   // keeps nothing
+   private SolutionCache() {
+      maxEntries = 0;
+      maxBytes = 0;
+   }
+
+   /**
+    * Returns the cache shared by every engine in the process.
+    *
+    * @return the shared cache
+    */
+   public static SolutionCache shared() {
+      return SHARED;
+   }
+
+   /**
+    * Returns a cache that keeps nothing and counts no lookups, for engines
+    * that must solve every board they are given, such as benchmarks and
+    * one-pass batch jobs.
+    *
+    * @return the empty cache
+    */
+   public static SolutionCache none() {
+      return NONE;
+   }
+
+   /**
+    * Returns the remembered solution for a board, if any.
+    *
+    * @param board the board cells in row-major order
+    * @param lexicon the lexicon the board was solved with
+    * @param minimumLength the minimum word length it was solved for
+    * @return the solution, or null if it is not cached
+    */
+   Solution get(String[] board, Lexicon lexicon, int minimumLength) {
+      if (this == NONE) {
+         return null;
+      }
+      synchronized (this) {
+         Solution solution =
+               entries.get(new Key(board, lexicon, minimumLength));
+         if (solution == null) {
+            misses++;
+         }
+         else {
+            hits++;
+         }
+         return solution;
+      }
+   }
+
+   /**
+    * Remembers the solution for a board, evicting older entries as needed.
+    * A solution larger than the memory limit on its own is not kept, so
+    * none() keeps nothing.
+    *
+    * @param board the board cells in row-major order
+    * @param lexicon the lexicon the board was solved with
+    * @param solution the solution
+    */
+   void put(String[] board, Lexicon lexicon, Solution solution) {
+      long size = solution.estimatedBytes();
+      if (size > maxBytes) {
+         return;
+      }
+      Key key = new Key(board.clone(), lexicon, solution.minimumLength());
+      synchronized (this) {
+         Solution old = entries.put(key, solution);
+         if (old != null) {
+            bytes -= old.estimatedBytes();
+         }
+         bytes += size;
+         Iterator<Map.Entry<Key, Solution>> eldest =
+               entries.entrySet().iterator();
+         while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= eldest.next().getValue().estimatedBytes();
+            eldest.remove();
+            evictions++;
+         }
+      }
+   }
+
+   /**
+    * Returns the fraction of lookups that found a solution.
+    *
+    * @return hits / (hits + misses), or 0 before any lookup
+    */
+   public synchronized double hitRatio() {
+      long lookups = hits + misses;
+      return lookups == 0 ? 0 : (double) hits / lookups;
+   }
+
+   /**
+    * Returns the number of lookups that found a solution.
+    *
+    * @return number of hits
+    */
+   public synchronized long hits() {
+      return hits;
+   }
+
+   /**
+    * Returns the number of lookups that found nothing.
+    *
+    * @return number of misses
+    */
+   public synchronized long misses() {
+      return misses;
+   }
+
+   /**
+    * Returns the number of solutions dropped to stay within the limits.
+    *
+    * @return number of evictions
+    */
+   public synchronized long evictions() {
+      return evictions;
+   }
+
+   /**
+    * Returns the number of cached solutions.
+    *
+    * @return number of entries
+    */
+   public synchronized int size() {
+      return entries.size();
+   }
+
+   /**
+    * Returns the estimated memory held by cached solutions.
+    *
+    * @return estimated bytes
+    */
+   public synchronized long estimatedBytes() {
+      return bytes;
+   }
+
+   /**
+    * Drops every cached solution. Statistics are kept.
+    */
+   public synchronized void clear() {
+      entries.clear();
+      bytes = 0;
+   }
+
+   /**
+    * Identifies a solved board. The board contents are compared in full, so
+    * two boards with the same hash never share a solution.
+    */
+   private static final class Key {
+      private final String[] board;
+      private final Lexicon lexicon;
+      private final int minimumLength;
+      private final int hash;
+
+      Key(String[] board, Lexicon lexicon, int minimumLength) {
+         this.board = board;
+         this.lexicon = lexicon;
+         this.minimumLength = minimumLength;
+         hash = (Arrays.hashCode(board) * 31
+               + System.identityHashCode(lexicon)) * 31 + minimumLength;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         if (!(o instanceof Key)) {
+            return false;
+         }
+         Key other = (Key) o;
+         return hash == other.hash && lexicon == other.lexicon
+               && minimumLength == other.minimumLength
+               && Arrays.equals(board, other.board);
+      }
+
+      @Override
+      public int hashCode() {
+         return hash;
+      }
+   }
+}
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+
+/**
+ * Holds a board together with every word found on it, for answering
+ * queries from many threads at once.
+ *
+ * A snapshot is taken from a GameEngine with GameEngine.snapshot() and
+ * never changes afterwards, whatever is later done to the engine. Scoring
+ * and validating words only read the remembered solution, and isOnBoard
+ * for strings the solution cannot answer searches with a solver of its
+ * own, so no query takes a lock or shares mutable state.
+ */
+public final class SolvedBoard {
+
+   private final String[] cells;
+   private final Lexicon lexicon;
+   private final Solution solution;
+   private final int minimumLength;
+
+   SolvedBoard(String[] cells, Lexicon lexicon, Solution solution,
+               int minimumLength) {
+      this.cells = cells;
+      this.lexicon = lexicon;
+      this.solution = solution;
+      this.minimumLength = minimumLength;
+   }
+
+   /**
+    * Returns the shortest scorable word length this snapshot was solved
+    * for.
+    *
+    * @return the minimum word length
+    */
+   public int minimumWordLength() {
+      return minimumLength;
+   }
+
+   /**
+    * Returns the board in row-major order.
+    *
+    * @return a copy of the board cells
+    */
+   public String[] board() {
+      return cells.clone();
+   }
+
+   /**
+    * Returns every scorable word on the board.
+    *
+    * @return the words in ascending order
+    */
+   public SortedSet<String> words() {
+      return solution.words(minimumLength);
+   }
+
+   /**
+    * Determines if a word scores on this board: it is in the lexicon, long
+    * enough, and on the board.
+    *
+    * @param word the word to check
+    * @return true if word scores, false otherwise
+    * @throws IllegalArgumentException if word is null
+    */
+   public boolean isScorable(String word) {
+      if (word == null) {
+         throw new IllegalArgumentException();
+      }
+      return word.length() >= minimumLength && solution.contains(word);
+   }
+
+   /**
+    * Scores a player's words as GameEngine.getScoreForWords does. Repeated
+    * words count once.
+    *
+    * @param words the words to score
+    * @param minimumWordLength The minimum allowed length for any word
+    * @return the total score
+    * @throws IllegalArgumentException if words is null or minimumWordLength
+    *     is less than minimumWordLength()
+    */
+   public int getScoreForWords(Collection<String> words,
+                               int minimumWordLength) {
+      if (words == null || minimumWordLength < minimumLength) {
+         throw new IllegalArgumentException();
+      }
+      Set<String> counted = new HashSet<String>();
+      int score = 0;
+      for (String word : words) {
+         if (word != null && word.length() >= minimumWordLength
+               && solution.contains(word) && counted.add(word)) {
+            score += (word.length() - minimumWordLength) + 1;
+         }
+      }
+      return score;
+   }
+
+   /**
+    * Returns a path that spells a string on this board, as
+    * GameEngine.isOnBoard does.
+    *
+    * @param wordToCheck the string to look for
+    * @return the positions of the path in row-major order, or an empty list
+    *     if the string is not on the board
+    * @throws IllegalArgumentException if wordToCheck is null
+    */
+   public List<Integer> isOnBoard(String wordToCheck) {
+      if (wordToCheck == null) {
+         throw new IllegalArgumentException();
+      }
+      int[] path;
+      if (solution.covers(wordToCheck.length())
+            && lexicon.contains(wordToCheck)) {
+         path = solution.path(wordToCheck);
+      }
+      else {
+         path = new BoardSolver(lexicon, cells).find(wordToCheck);
+      }
+      List<Integer> wordPath = new ArrayList<Integer>();
+      if (path != null) {
+         for (int i : path) {
+            wordPath.add(i);
+         }
+      }
+      return wordPath;
+   }
+}
@@ -0,0 +1,197 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * SolverBenchmark.java
+ * Measures the word search engine on seeded random boards from 4x4 to 64x64,
+ * on the default board, and with several lexicon sizes.
+ *
+ * Each measurement warms up, then repeats the operation for a fixed amount of
+ * time and reports throughput, average time and bytes allocated per
+ * operation. Allocation is read from the JVM's per-thread allocation
+ * counter, so it includes everything the operation allocates.
+ *
+ *      java SolverBenchmark Wordlist.txt [seconds per measurement]
+ */
+public class SolverBenchmark {
+
+   // board widths to measure
+   private static final int[] SIZES = {4, 5, 6, 8, 16, 32, 64};
+
+   // fractions of the word list to build smaller lexicons from
+   private static final int[] LEXICON_DIVISORS = {1, 4, 16};
+
+   // letters drawn for random boards, roughly by English frequency
+   private static final String LETTERS =
+         "EEEEEEEEEEEETTTTTTTTTAAAAAAAAOOOOOOOOIIIIIIINNNNNNNSSSSSSHHHHHH"
+         + "RRRRRRDDDDLLLLCCCUUUMMMWWFFGGYYPPBVKJXQZ";
+
+   private static final long SEED = 2210;
+   private static final int MINIMUM_LENGTH = 3;
+
+   // 1.0E9 ns per second
+   private static final double SECONDS = 1_000_000_000d;
+
+   private static final com.sun.management.ThreadMXBean THREADS =
+         (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+   private static long budget;
+
+   /** Drives execution. */
+   public static void main(String[] args) throws IOException {
+      if (args.length < 1) {
+         System.err.println("usage: java SolverBenchmark wordlist [seconds]");
+         System.exit(1);
+      }
+      double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 1d;
+      budget = (long) (seconds * SECONDS);
+
+      System.out.printf("%-44s %12s %12s %14s %10s%n",
+            "benchmark", "ops/s", "ms/op", "bytes/op", "MB/s");
+      List<String> lexicons = lexiconFiles(args[0]);
+      for (String lexicon : lexicons) {
+         measureLoad(lexicon);
+      }
+      for (String lexicon : lexicons) {
+         // no solution cache, so repeated boards are solved again
+         GameEngine engine =
+               new GameEngine(new LexiconCache(), SolutionCache.none());
+         engine.loadLexicon(lexicon);
+         String name = new File(lexicon).getName();
+         measureBoard(engine, name, "default", null);
+         for (int size : SIZES) {
+            measureBoard(engine, name, size + "x" + size,
+                  randomBoard(size, new Random(SEED + size)));
+         }
+      }
+   }
+
+   /**
+    * Writes every divisor-th word of the word list to a temporary file, so
+    * the lexicon size can be varied.
+    */
+   private static List<String> lexiconFiles(String wordList)
+         throws IOException {
+      List<String> words = Files.readAllLines(new File(wordList).toPath());
+      List<String> files = new ArrayList<String>();
+      File dir = Files.createTempDirectory("lexicons").toFile();
+      dir.deleteOnExit();
+      for (int divisor : LEXICON_DIVISORS) {
+         if (divisor == 1) {
+            files.add(wordList);
+            continue;
+         }
+         List<String> subset = new ArrayList<String>();
+         for (int i = 0; i < words.size(); i += divisor) {
+            subset.add(words.get(i));
+         }
+         File file = new File(dir,
+               "1of" + divisor + "-" + new File(wordList).getName());
+         file.deleteOnExit();
+         Files.write(file.toPath(), subset);
+         files.add(file.getPath());
+      }
+      return files;
+   }
+
+   private static String[] randomBoard(int size, Random rng) {
+      String[] board = new String[size * size];
+      for (int i = 0; i < board.length; i++) {
+         int letter = rng.nextInt(LETTERS.length());
+         board[i] = String.valueOf(LETTERS.charAt(letter));
+      }
+      return board;
+   }
+
+   private static void measureLoad(String lexicon) {
+      String name = "loadLexicon " + new File(lexicon).getName();
+      // a fresh cache each time, so every call reads the file
+      measure(name,
+            () -> new GameEngine(new LexiconCache()).loadLexicon(lexicon));
+   }
+
+   private static void measureBoard(GameEngine engine, String lexicon,
+                                    String boardName, String[] board) {
+      if (board != null) {
+         engine.setBoard(board);
+      }
+      SortedSet<String> found = engine.getAllScorableWords(MINIMUM_LENGTH);
+      SortedSet<String> submitted = new TreeSet<String>();
+      int i = 0;
+      for (String word : found) {
+         if (i++ % 2 == 0) {
+            submitted.add(word);
+         }
+      }
+      String present = found.isEmpty() ? "THE" : found.last();
+      String label = lexicon + " " + boardName;
+
+      // setBoard drops the remembered solution and the engine caches no
+      // others, so every call below solves
+      String[] cells = board;
+      measure("getAllScorableWords " + label, () -> {
+         reset(engine, cells);
+         engine.getAllScorableWords(MINIMUM_LENGTH);
+      });
+      measure("getScoreForWords " + label, () -> {
+         reset(engine, cells);
+         engine.getScoreForWords(submitted, MINIMUM_LENGTH);
+      });
+      measure("isOnBoard " + label, () -> {
+         engine.isOnBoard(present);
+         engine.isOnBoard("ZZZZZZ");
+      });
+   }
+
+   private static void reset(GameEngine engine, String[] board) {
+      if (board != null) {
+         engine.setBoard(board);
+      }
+      else {
+         engine.setBoard(new String[] {"E", "E", "C", "A", "A", "L", "E", "P",
+               "H", "N", "B", "O", "Q", "T", "T", "Y"});
+      }
+   }
+
+   /**
+    * Runs an operation for half the budget to warm up, then for the full
+    * budget while timing it, and prints the results.
+    */
+   private static void measure(String name, Operation op) {
+      try {
+         long warmUntil = System.nanoTime() + budget / 2;
+         while (System.nanoTime() < warmUntil) {
+            op.run();
+         }
+         long thread = Thread.currentThread().getId();
+         long ops = 0;
+         long allocated = THREADS.getThreadAllocatedBytes(thread);
+         long start = System.nanoTime();
+         long elapsed;
+         do {
+            op.run();
+            ops++;
+            elapsed = System.nanoTime() - start;
+         } while (elapsed < budget);
+         allocated = THREADS.getThreadAllocatedBytes(thread) - allocated;
+         System.out.printf("%-44s %12.1f %12.4f %14d %10.1f%n", name,
+               ops / (elapsed / SECONDS), elapsed / 1e6 / ops, allocated / ops,
+               allocated / 1e6 / (elapsed / SECONDS));
+      }
+      catch (IOException e) {
+         System.out.printf("%-44s failed: %s%n", name, e);
+      }
+   }
+
+   /** An operation to measure. */
+   private interface Operation {
+      void run() throws IOException;
+   }
+}
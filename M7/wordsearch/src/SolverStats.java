@@ -0,0 +1,276 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Collects process-wide statistics about board searches.
+ *
+ * Solvers always count their own work in plain fields; the engine hands
+ * those counts to this class after each call, and they are only added up
+ * when collection is enabled. When it is disabled the engine also skips
+ * timing, so the cost is one volatile read per public call.
+ *
+ * Read the statistics with snapshot(), or over JMX under
+ * wordsearch:type=SolverStats after calling register().
+ */
+public final class SolverStats implements SolverStatsMBean {
+
+   /** The engine calls that are timed. */
+   public enum Call {
+      SOLVE, IS_ON_BOARD, SCORE
+   }
+
+   private static final SolverStats INSTANCE = new SolverStats();
+   private static final String NAME = "wordsearch:type=SolverStats";
+
+   private static volatile boolean enabled;
+
+   private final LongAdder expanded = new LongAdder();
+   private final LongAdder probes = new LongAdder();
+   private final LongAdder pruned = new LongAdder();
+   private final LongAdder searches = new LongAdder();
+   private final LongAdder found = new LongAdder();
+   private final AtomicInteger deepest = new AtomicInteger();
+   private volatile LatencyHistogram solve = new LatencyHistogram();
+   private volatile LatencyHistogram onBoard = new LatencyHistogram();
+   private volatile LatencyHistogram score = new LatencyHistogram();
+
+   private SolverStats() {
+   }
+
+   /**
+    * Returns the process-wide statistics.
+    *
+    * @return the single SolverStats instance
+    */
+   public static SolverStats get() {
+      return INSTANCE;
+   }
+
+   /**
+    * Determines if statistics are being collected. Checked by the engine
+    * before it times a call.
+    *
+    * @return true if collecting, false otherwise
+    */
+   static boolean collecting() {
+      return enabled;
+   }
+
+   /**
+    * Publishes these statistics on the platform MBean server. Calling it
+    * again has no effect.
+    *
+    * @throws JMException if the MBean cannot be registered
+    */
+   public synchronized void register() throws JMException {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = new ObjectName(NAME);
+      if (!server.isRegistered(name)) {
+         server.registerMBean(this, name);
+      }
+   }
+
+   /**
+    * Adds the work counted by a solver and clears its counters.
+    *
+    * @param solver the solver that just finished a search
+    */
+   void record(BoardSolver solver) {
+      if (enabled) {
+         expanded.add(solver.expanded());
+         probes.add(solver.probes());
+         pruned.add(solver.pruned());
+         found.add(solver.found());
+         searches.increment();
+         deepest.accumulateAndGet(solver.deepest(), Math::max);
+      }
+      solver.resetCounters();
+   }
+
+   /**
+    * Records how long an engine call took.
+    *
+    * @param call the call that was timed
+    * @param nanos its duration
+    */
+   void record(Call call, long nanos) {
+      switch (call) {
+         case SOLVE:
+            solve.record(nanos);
+            break;
+         case IS_ON_BOARD:
+            onBoard.record(nanos);
+            break;
+         default:
+            score.record(nanos);
+      }
+   }
+
+   @Override
+   public boolean isEnabled() {
+      return enabled;
+   }
+
+   @Override
+   public void setEnabled(boolean on) {
+      enabled = on;
+   }
+
+   @Override
+   public long getNodesExpanded() {
+      return expanded.sum();
+   }
+
+   @Override
+   public long getPrefixProbes() {
+      return probes.sum();
+   }
+
+   @Override
+   public long getPrunedBranches() {
+      return pruned.sum();
+   }
+
+   @Override
+   public int getMaxDepth() {
+      return deepest.get();
+   }
+
+   @Override
+   public long getSearches() {
+      return searches.sum();
+   }
+
+   @Override
+   public double getWordsFoundPerSearch() {
+      long n = searches.sum();
+      return n == 0 ? 0 : (double) found.sum() / n;
+   }
+
+   @Override
+   public String getAllScorableWordsLatency() {
+      return solve.toString();
+   }
+
+   @Override
+   public String getIsOnBoardLatency() {
+      return onBoard.toString();
+   }
+
+   @Override
+   public String getScoreForWordsLatency() {
+      return score.toString();
+   }
+
+   @Override
+   public synchronized void reset() {
+      expanded.reset();
+      probes.reset();
+      pruned.reset();
+      found.reset();
+      searches.reset();
+      deepest.set(0);
+      solve = new LatencyHistogram();
+      onBoard = new LatencyHistogram();
+      score = new LatencyHistogram();
+   }
+
+   /**
+    * Returns the current statistics. Counters are read one after another,
+    * so a snapshot taken during searches may be off by the work of the
+    * searches in progress.
+    *
+    * @return a copy of the current values
+    */
+   public Snapshot snapshot() {
+      return new Snapshot(this);
+   }
+
+   /**
+    * Holds the statistics as they were when snapshot() was called.
+    */
+   public static final class Snapshot {
+      private final long nodesExpanded;
+      private final long prefixProbes;
+      private final long prunedBranches;
+      private final int maxDepth;
+      private final long searches;
+      private final double wordsFoundPerSearch;
+      private final LatencyHistogram solve;
+      private final LatencyHistogram onBoard;
+      private final LatencyHistogram score;
+
+      private Snapshot(SolverStats stats) {
+         nodesExpanded = stats.getNodesExpanded();
+         prefixProbes = stats.getPrefixProbes();
+         prunedBranches = stats.getPrunedBranches();
+         maxDepth = stats.getMaxDepth();
+         searches = stats.getSearches();
+         wordsFoundPerSearch = stats.getWordsFoundPerSearch();
+         solve = stats.solve;
+         onBoard = stats.onBoard;
+         score = stats.score;
+      }
+
+      /** Returns the number of cells pushed onto search paths. */
+      public long nodesExpanded() {
+         return nodesExpanded;
+      }
+
+      /** Returns the number of lexicon or word lookups made for a cell. */
+      public long prefixProbes() {
+         return prefixProbes;
+      }
+
+      /** Returns the number of cells rejected while searching. */
+      public long prunedBranches() {
+         return prunedBranches;
+      }
+
+      /** Returns the longest search path seen. */
+      public int maxDepth() {
+         return maxDepth;
+      }
+
+      /** Returns the number of board searches recorded. */
+      public long searches() {
+         return searches;
+      }
+
+      /** Returns the mean number of words reported per board search. */
+      public double wordsFoundPerSearch() {
+         return wordsFoundPerSearch;
+      }
+
+      /**
+       * Returns the latency histogram of an engine call. The histogram
+       * keeps recording after the snapshot is taken.
+       *
+       * @param call the call of interest
+       * @return its latency histogram
+       */
+      public LatencyHistogram latency(Call call) {
+         switch (call) {
+            case SOLVE:
+               return solve;
+            case IS_ON_BOARD:
+               return onBoard;
+            default:
+               return score;
+         }
+      }
+
+      @Override
+      public String toString() {
+         return String.format("searches=%d expanded=%d probes=%d pruned=%d"
+               + " maxDepth=%d words/search=%.1f%n  getAllScorableWords %s"
+               + "%n  isOnBoard %s%n  getScoreForWords %s", searches,
+               nodesExpanded, prefixProbes, prunedBranches, maxDepth,
+               wordsFoundPerSearch, solve, onBoard, score);
+      }
+   }
+}
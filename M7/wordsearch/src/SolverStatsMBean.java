@@ -0,0 +1,49 @@
+/**
+ * Defines the solver statistics published over JMX by SolverStats.
+ */
+public interface SolverStatsMBean {
+
+   /**
+    * Determines if statistics are being collected.
+    *
+    * @return true if collecting, false otherwise
+    */
+   boolean isEnabled();
+
+   /**
+    * Turns collection on or off.
+    *
+    * @param enabled true to collect statistics
+    */
+   void setEnabled(boolean enabled);
+
+   /** Returns the number of cells pushed onto search paths. */
+   long getNodesExpanded();
+
+   /** Returns the number of lexicon or word lookups made for a cell. */
+   long getPrefixProbes();
+
+   /** Returns the number of cells rejected by the lexicon or a length bound. */
+   long getPrunedBranches();
+
+   /** Returns the longest search path seen. */
+   int getMaxDepth();
+
+   /** Returns the number of board searches recorded. */
+   long getSearches();
+
+   /** Returns the mean number of words reported per board search. */
+   double getWordsFoundPerSearch();
+
+   /** Describes the latency distribution of getAllScorableWords. */
+   String getAllScorableWordsLatency();
+
+   /** Describes the latency distribution of isOnBoard. */
+   String getIsOnBoardLatency();
+
+   /** Describes the latency distribution of getScoreForWords. */
+   String getScoreForWordsLatency();
+
+   /** Sets every counter and histogram back to zero. */
+   void reset();
+}
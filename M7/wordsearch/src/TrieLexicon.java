@@ -0,0 +1,236 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Provides an immutable trie implementation of the Lexicon interface.
+ *
+ * Nodes are numbered in breadth-first order and stored in parallel arrays,
+ * so the children of every node sit next to each other and a node is just
+ * an index. Moving to a child scans at most one alphabet's worth of
+ * siblings, which is constant time for any fixed alphabet.
+ */
+public final class TrieLexicon implements Lexicon {
+
+   private static final int INITIAL_CAPACITY = 1024;
+   private static final int ARRAY_HEADER_BYTES = 16;
+
+   private final char[] label;
+   private final int[] firstChild;
+   private final int[] childCount;
+   private final boolean[] word;
+   private final char[] height;
+   private final long[] letters;
+   private final int size;
+
+   /**
+    * Builds a trie containing the given words.
+    *
+    * @param words the words to store; need not be sorted or unique
+    */
+   public TrieLexicon(Collection<String> words) {
+      this(sortedUnique(words));
+   }
+
+   /**
+    * Builds a trie from words that are already in ascending natural order.
+    * Duplicates are allowed.
+    *
+    * @param sorted the words to store, in ascending order
+    */
+   public TrieLexicon(String[] sorted) {
+      int capacity = INITIAL_CAPACITY;
+      char[] labels = new char[capacity];
+      int[] first = new int[capacity];
+      int[] count = new int[capacity];
+      boolean[] ends = new boolean[capacity];
+      // the slice of sorted words below each node and the node's depth,
+      // needed only while building
+      int[] lo = new int[capacity];
+      int[] hi = new int[capacity];
+      int[] depth = new int[capacity];
+      long[] spelled = new long[capacity];
+
+      int words = 0;
+      int nodes = 1;
+      hi[0] = sorted.length;
+      for (int node = 0; node < nodes; node++) {
+         int a = lo[node];
+         int b = hi[node];
+         int d = depth[node];
+         while (a < b && sorted[a].length() == d) {
+            if (!ends[node]) {
+               ends[node] = true;
+               words++;
+            }
+            a++;
+         }
+         first[node] = nodes;
+         while (a < b) {
+            char c = sorted[a].charAt(d);
+            int e = a + 1;
+            while (e < b && sorted[e].charAt(d) == c) {
+               e++;
+            }
+            if (nodes == capacity) {
+               capacity *= 2;
+               labels = Arrays.copyOf(labels, capacity);
+               first = Arrays.copyOf(first, capacity);
+               count = Arrays.copyOf(count, capacity);
+               ends = Arrays.copyOf(ends, capacity);
+               lo = Arrays.copyOf(lo, capacity);
+               hi = Arrays.copyOf(hi, capacity);
+               depth = Arrays.copyOf(depth, capacity);
+               spelled = Arrays.copyOf(spelled, capacity);
+            }
+            labels[nodes] = c;
+            lo[nodes] = a;
+            hi[nodes] = e;
+            depth[nodes] = d + 1;
+            spelled[nodes] = Lexicon.withLetter(spelled[node], c);
+            nodes++;
+            a = e;
+         }
+         count[node] = nodes - first[node];
+      }
+
+      label = Arrays.copyOf(labels, nodes);
+      firstChild = Arrays.copyOf(first, nodes);
+      childCount = Arrays.copyOf(count, nodes);
+      word = Arrays.copyOf(ends, nodes);
+      size = words;
+      // children are numbered after their parents, so one backwards pass
+      // sees every child before its parent
+      height = new char[nodes];
+      letters = new long[nodes];
+      for (int node = nodes - 1; node >= 0; node--) {
+         int h = 0;
+         // a word ending here needs exactly the letters of its prefix
+         long needed = ends[node] ? spelled[node] : -1L;
+         for (int i = first[node]; i < first[node] + count[node]; i++) {
+            h = Math.max(h, height[i] + 1);
+            needed &= letters[i];
+         }
+         height[node] = (char) Math.min(h, Character.MAX_VALUE);
+         letters[node] = needed;
+      }
+   }
+
+   /**
+    * Reads a whitespace-separated UTF-8 word list, upper-casing every word.
+    *
+    * @param file the word list
+    * @return a trie of the words in the file
+    * @throws FileNotFoundException if the file cannot be opened
+    * @throws IOException if the file cannot be read
+    */
+   public static TrieLexicon fromWordList(File file) throws IOException {
+      return new TrieLexicon(WordListReader.read(file));
+   }
+   
+   private static String[] sortedUnique(Collection<String> words) {
+      String[] sorted = words.toArray(new String[0]);
+      Arrays.sort(sorted);
+      return sorted;
+   }
+
+   @Override
+   public int size() {
+      return size;
+   }
+
+   @Override
+   public long footprint() {
+      return arrayBytes(label.length, Character.BYTES)
+            + arrayBytes(firstChild.length, Integer.BYTES)
+            + arrayBytes(childCount.length, Integer.BYTES)
+            + arrayBytes(word.length, 1)
+            + arrayBytes(height.length, Character.BYTES)
+            + arrayBytes(letters.length, Long.BYTES);
+   }
+
+   private static long arrayBytes(int length, int elementBytes) {
+      long bytes = ARRAY_HEADER_BYTES + (long) length * elementBytes;
+      return (bytes + 7) & ~7L;
+   }
+
+   @Override
+   public int root() {
+      return 0;
+   }
+
+   @Override
+   public int child(int node, char c) {
+      int end = firstChild[node] + childCount[node];
+      for (int i = firstChild[node]; i < end; i++) {
+         if (label[i] == c) {
+            return i;
+         }
+      }
+      return NONE;
+   }
+
+   @Override
+   public int height(int node) {
+      return height[node];
+   }
+
+   @Override
+   public long letters(int node) {
+      return letters[node];
+   }
+
+   @Override
+   public int walk(int node, char[] chars) {
+      for (int k = 0; k < chars.length; k++) {
+         char c = chars[k];
+         int i = firstChild[node];
+         int end = i + childCount[node];
+         while (i < end && label[i] != c) {
+            i++;
+         }
+         if (i == end) {
+            return NONE;
+         }
+         node = i;
+      }
+      return node;
+   }
+
+   @Override
+   public boolean isWord(int node) {
+      return word[node];
+   }
+
+   /**
+    * Returns the number of nodes in this trie.
+    *
+    * @return number of nodes
+    */
+   public int nodeCount() {
+      return label.length;
+   }
+
+   /**
+    * Returns the character on the edge into a node.
+    */
+   char label(int node) {
+      return label[node];
+   }
+
+   /**
+    * Returns the first child of a node.
+    */
+   int firstChild(int node) {
+      return firstChild[node];
+   }
+
+   /**
+    * Returns the number of children of a node.
+    */
+   int childCount(int node) {
+      return childCount[node];
+   }
+}
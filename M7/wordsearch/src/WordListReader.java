@@ -0,0 +1,199 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads a word list into sorted, upper-cased, distinct words.
+ *
+ * The file is memory-mapped in large chunks whose ends fall on line breaks,
+ * and the chunks are split into words in parallel. Words are separated by
+ * whitespace, as with Scanner. ASCII words are upper-cased byte by byte
+ * into a reused char buffer, so each word becomes exactly one String; only
+ * words with other characters are decoded as UTF-8 and upper-cased through
+ * String.
+ */
+final class WordListReader {
+
+   // smallest chunk worth handing to another thread
+   private static final long MIN_CHUNK = 1 << 20;
+
+   // chunks per worker, so uneven chunks still spread evenly
+   private static final int CHUNKS_PER_WORKER = 4;
+
+   // how far to look past a chunk's nominal end for a line break
+   private static final int PROBE = 256;
+
+   private WordListReader() {
+   }
+
+   /**
+    * Reads the words of a file.
+    *
+    * @param file the word list
+    * @return its distinct words, upper-cased, in ascending order
+    * @throws IOException if the file cannot be read
+    */
+   static String[] read(File file) throws IOException {
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try {
+         FileChannel channel = raf.getChannel();
+         List<ChunkTask> tasks = new ArrayList<ChunkTask>();
+         for (long[] chunk : chunks(channel)) {
+            tasks.add(new ChunkTask(channel.map(FileChannel.MapMode.READ_ONLY,
+                  chunk[0], chunk[1] - chunk[0])));
+         }
+         ForkJoinTask.invokeAll(tasks);
+         int total = 0;
+         for (ChunkTask task : tasks) {
+            total += task.join().length;
+         }
+         String[] words = new String[total];
+         int n = 0;
+         for (ChunkTask task : tasks) {
+            String[] part = task.join();
+            System.arraycopy(part, 0, words, n, part.length);
+            n += part.length;
+         }
+         return sortedUnique(words);
+      }
+      finally {
+         raf.close();
+      }
+   }
+
+   /**
+    * Splits a file into [start, end) ranges that each end just after a
+    * line break, or at the end of the file.
+    */
+   private static List<long[]> chunks(FileChannel channel) throws IOException {
+      long size = channel.size();
+      int workers = Runtime.getRuntime().availableProcessors();
+      long target = Math.max(MIN_CHUNK, size / (workers * CHUNKS_PER_WORKER));
+      target = Math.min(target, Integer.MAX_VALUE - PROBE);
+      List<long[]> chunks = new ArrayList<long[]>();
+      ByteBuffer probe = ByteBuffer.allocate(PROBE);
+      long start = 0;
+      while (start < size) {
+         long end = start + target;
+         while (end < size) {
+            probe.clear();
+            int n = channel.read(probe, end);
+            int i = 0;
+            while (i < n && probe.get(i) != '\n') {
+               i++;
+            }
+            end += i;
+            if (i < n) {
+               end++;
+               break;
+            }
+         }
+         end = Math.min(end, size);
+         chunks.add(new long[] {start, end});
+         start = end;
+      }
+      return chunks;
+   }
+
+   /**
+    * Sorts words and drops repeats.
+    */
+   private static String[] sortedUnique(String[] words) {
+      Arrays.parallelSort(words);
+      int n = 0;
+      for (int i = 0; i < words.length; i++) {
+         if (n == 0 || !words[i].equals(words[n - 1])) {
+            words[n++] = words[i];
+         }
+      }
+      return n == words.length ? words : Arrays.copyOf(words, n);
+   }
+
+   /**
+    * Splits one mapped chunk into upper-cased words.
+    */
+   private static final class ChunkTask extends RecursiveTask<String[]> {
+      private static final long serialVersionUID = 1L;
+
+      private final transient MappedByteBuffer bytes;
+
+      ChunkTask(MappedByteBuffer bytes) {
+         this.bytes = bytes;
+      }
+
+      @Override
+      protected String[] compute() {
+         List<String> words = new ArrayList<String>();
+         char[] chars = new char[64];
+         int limit = bytes.limit();
+         int i = 0;
+         while (i < limit) {
+            while (i < limit && isSpace(bytes.get(i))) {
+               i++;
+            }
+            int start = i;
+            boolean ascii = true;
+            while (i < limit && !isSpace(bytes.get(i))) {
+               ascii &= bytes.get(i) >= 0;
+               i++;
+            }
+            int length = i - start;
+            if (length == 0) {
+               break;
+            }
+            if (ascii) {
+               if (length > chars.length) {
+                  chars = new char[Math.max(length, chars.length * 2)];
+               }
+               for (int j = 0; j < length; j++) {
+                  int c = bytes.get(start + j);
+                  chars[j] = (char) (c >= 'a' && c <= 'z' ? c - 32 : c);
+               }
+               words.add(new String(chars, 0, length));
+            }
+            else {
+               addDecoded(words, start, length);
+            }
+         }
+         return words.toArray(new String[0]);
+      }
+
+      /**
+       * Decodes a word holding non-ASCII bytes. It may still hold Unicode
+       * whitespace, which Scanner would have split on.
+       */
+      private void addDecoded(List<String> words, int start, int length) {
+         byte[] raw = new byte[length];
+         for (int j = 0; j < length; j++) {
+            raw[j] = bytes.get(start + j);
+         }
+         String text = new String(raw, StandardCharsets.UTF_8);
+         int from = 0;
+         for (int j = 0; j <= text.length(); j++) {
+            if (j == text.length() || Character.isWhitespace(text.charAt(j))) {
+               if (j > from) {
+                  words.add(text.substring(from, j).toUpperCase());
+               }
+               from = j + 1;
+            }
+         }
+      }
+   }
+
+   /**
+    * Determines if a byte is ASCII whitespace as Character.isWhitespace
+    * sees it. UTF-8 never uses these bytes inside a longer character.
+    */
+   private static boolean isSpace(byte b) {
+      return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+   }
+}
@@ -1,14 +1,19 @@
 
 import java.io.FileNotFoundException;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.SortedSet;
 
 /**
  * Defines the methods needed to play a word search game.
  *
+ * A game may hold a shared lexicon, so close it when it is no longer
+ * needed.
  */
-public interface WordSearchGame {
+public interface WordSearchGame extends AutoCloseable {
    /**
     * Loads the lexicon into a data structure for later use.
     *
@@ -103,4 +108,37 @@ public interface WordSearchGame {
     */
    List<Integer> isOnBoard(String wordToCheck);
    
+   /**
+    * Determines which of the given words are on the game board, returning
+    * the path that makes up each one. Implementations are encouraged to
+    * look for all of the words at once rather than one at a time.
+    * @param wordsToCheck The words to validate
+    * @return java.util.Map from each word that is on the game board to its
+    *     path, numbered as in isOnBoard. Words not on the board are absent.
+    * @throws IllegalArgumentException if wordsToCheck is null or contains null.
+    * @throws IllegalStateException if loadLexicon has not been called.
+    */
+   default Map<String, List<Integer>> getPathsOnBoard(
+         Collection<String> wordsToCheck) {
+      if (wordsToCheck == null) {
+         throw new IllegalArgumentException();
+      }
+      Map<String, List<Integer>> paths = new HashMap<String, List<Integer>>();
+      for (String word : wordsToCheck) {
+         List<Integer> path = isOnBoard(word);
+         if (!path.isEmpty()) {
+            paths.put(word, path);
+         }
+      }
+      return paths;
+   }
+   
+   /**
+    * Releases the lexicon loaded by loadLexicon. The game needs another
+    * call to loadLexicon before it can be used again. Closing a game that
+    * holds no lexicon does nothing.
+    */
+   @Override
+   void close();
+   
 }
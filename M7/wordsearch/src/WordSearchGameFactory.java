@@ -4,12 +4,25 @@
  */
 public class WordSearchGameFactory {
    
+   // lexicons shared by every game this factory creates
+   private static final LexiconCache LEXICONS = new LexiconCache();
+   
    /**
     * Returns an instance of a class that implements the WordSearchGame
-    * interface.
+    * interface. Games share lexicons through this factory's cache, so
+    * close each game when done with it to let the cache drop lexicons no
+    * game still holds.
     */
    public static WordSearchGame createGame() {
-      return new GameEngine();
+      return new GameEngine(LEXICONS);
+   }
+   
+   /**
+    * Returns the cache of lexicons shared by the games this factory creates,
+    * for reading its hit, miss and memory statistics.
+    */
+   public static LexiconCache lexiconCache() {
+      return LEXICONS;
    }
    
 }